@@ -0,0 +1,64 @@
+package com.database.utils.testerClasses;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+import com.sys.beans.Company;
+import com.sys.beans.Coupon;
+import com.sys.beans.Customer;
+import com.sys.connection.ConnectionPool;
+import com.sys.connection.DbExecutor;
+import com.sys.dao.AsyncElementDAOAdapter;
+import com.sys.dao.AsyncUserDAOAdapter;
+import com.sys.dao.CompanyDBDAO;
+import com.sys.dao.CouponDBDAO;
+import com.sys.dao.CustomerDBDAO;
+
+/**
+ * Loads what an admin dashboard shows, all companies, customers and coupons, {@link #ROUNDS} times:
+ * first one read after another with the blocking DAOs, then as three parallel reads with the async adapters
+ * on the {@link DbExecutor}, and prints the time of each.</br>
+ * Passes when both ways read the same number of rows.
+ * Expects the Derby network server at the pool's URL, with the Derby client driver on the classpath.
+ */
+public class AsyncDAOTester {
+	static final int ROUNDS = 50;
+
+	public static void main(String[] args) throws Exception {
+		CouponDBDAO couponDao = new CouponDBDAO();
+		CompanyDBDAO companyDao = new CompanyDBDAO(couponDao);
+		CustomerDBDAO customerDao = new CustomerDBDAO(couponDao);
+		AsyncElementDAOAdapter<Coupon, CouponDBDAO> coupons = new AsyncElementDAOAdapter<>(couponDao);
+		AsyncUserDAOAdapter<Company, CompanyDBDAO> companies = new AsyncUserDAOAdapter<>(companyDao);
+		AsyncUserDAOAdapter<Customer, CustomerDBDAO> customers = new AsyncUserDAOAdapter<>(customerDao);
+
+		long start = System.nanoTime();
+		int rows = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			rows = companyDao.readAll().size() + customerDao.readAll().size() + couponDao.readAll().size();
+		}
+		long sequential = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		int parallelRows = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			CompletableFuture<Collection<Company>> allCompanies = companies.readAll();
+			CompletableFuture<Collection<Customer>> allCustomers = customers.readAll();
+			parallelRows = allCompanies
+					.thenCombine(allCustomers, (a, b) -> a.size() + b.size())
+					.thenCombine(coupons.readAll(), (count, c) -> count + c.size())
+					.join();
+		}
+		long parallel = System.nanoTime() - start;
+
+		System.out.println("rows per dashboard: " + rows + " sequential, " + parallelRows + " parallel");
+		System.out.println("sequential : " + sequential / ROUNDS / 1_000_000.0 + " ms per dashboard");
+		System.out.println("parallel   : " + parallel / ROUNDS / 1_000_000.0 + " ms per dashboard, on "
+				+ DbExecutor.getInstance().getThreads() + " DB threads");
+		System.out.println(rows == parallelRows ? "PASSED" : "FAILED");
+
+		DbExecutor.getInstance().shutdown();
+		ConnectionPool.getInstance().closeAllConnections();
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.database.utils.testerClasses;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sys.connection.ConnectionPool;
+import com.sys.exception.ConnectionException;
+import com.sys.exception.CouponSystemException;
+
+/**
+ * Compares borrow/restore throughput of {@link ConnectionPool} against the previous
+ * synchronized {@code HashSet} pool, using the same ten Derby connections for both.
+ */
+public class ConnectionPoolThroughputTester {
+	static final int THREADS = 64;
+	static final long DURATION_MILLIS = 5000;
+	static final int POOL_SIZE = 10;
+
+	interface Pool {
+		Connection get() throws CouponSystemException;
+
+		void restore(Connection connection);
+	}
+
+	/**
+	 * The previous engine: one monitor, {@code wait()}/{@code notify()} over a {@code HashSet}.
+	 */
+	static class LegacyPool implements Pool {
+		private Set<Connection> connections = new HashSet<>();
+
+		LegacyPool(List<Connection> source) {
+			connections.addAll(source);
+		}
+
+		public synchronized Connection get() throws ConnectionException {
+			while (connections.isEmpty()) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					throw new ConnectionException("Thread interrupted while getting a connection", e);
+				}
+			}
+			Connection result = connections.iterator().next();
+			connections.remove(result);
+			return result;
+		}
+
+		public synchronized void restore(Connection connection) {
+			connections.add(connection);
+			notify();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		ConnectionPool pool = ConnectionPool.getInstance();
+		Pool current = new Pool() {
+			public Connection get() throws CouponSystemException {
+				return pool.getConnection();
+			}
+
+			public void restore(Connection connection) {
+				pool.restoreConnection(connection);
+			}
+		};
+
+		// warm up both engines before measuring.
+		measure(current, DURATION_MILLIS / 5);
+		long currentOps = measure(current, DURATION_MILLIS);
+
+		List<Connection> borrowed = new ArrayList<>();
+		for (int i = 0; i < POOL_SIZE; i++) {
+			borrowed.add(pool.getConnection());
+		}
+		LegacyPool legacy = new LegacyPool(borrowed);
+		measure(legacy, DURATION_MILLIS / 5);
+		long legacyOps = measure(legacy, DURATION_MILLIS);
+		for (Connection connection : borrowed) {
+			pool.restoreConnection(connection);
+		}
+
+		System.out.println(THREADS + " threads, " + POOL_SIZE + " connections, " + DURATION_MILLIS + "ms");
+		System.out.println("legacy  : " + legacyOps * 1000 / DURATION_MILLIS + " borrow/restore per second");
+		System.out.println("current : " + currentOps * 1000 / DURATION_MILLIS + " borrow/restore per second");
+		pool.closeAllConnections();
+	}
+
+	static long measure(Pool pool, long durationMillis) throws InterruptedException {
+		LongAdder operations = new LongAdder();
+		CountDownLatch start = new CountDownLatch(1);
+		long deadline = System.currentTimeMillis() + durationMillis;
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+					while (System.currentTimeMillis() < deadline) {
+						Connection connection = pool.get();
+						pool.restore(connection);
+						operations.increment();
+					}
+				} catch (CouponSystemException | InterruptedException e) {
+					e.printStackTrace();
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return operations.sum();
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.database.utils.testerClasses;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sys.beans.Coupon;
+import com.sys.dao.CacheMetrics;
+import com.sys.dao.CachedCouponDBDAO;
+
+/**
+ * Checks the eviction rules of {@link CachedCouponDBDAO} over in-memory coupons, so it needs no DB:
+ * the least recently read coupon is evicted when the cache is full, an entry past its time to live is read again,
+ * a read that raced with an invalidation is not cached, and changing a returned coupon does not change the cached one.</br>
+ * Passes when every coupon is read from the "DB" exactly as often as those rules say.
+ */
+public class CouponCacheEvictionTester {
+	static final int AMOUNT = 10;
+
+	/**
+	 * Serves every id as a coupon with {@link CouponCacheEvictionTester#AMOUNT AMOUNT} in stock, and counts the reads.
+	 */
+	static class InMemoryCache extends CachedCouponDBDAO {
+		private final AtomicInteger reads = new AtomicInteger();
+		private Runnable duringRead = () -> {
+		};
+
+		InMemoryCache(int maxSize, Duration ttl) {
+			super(maxSize, ttl);
+		}
+
+		@Override
+		protected Coupon readThrough(int id) {
+			reads.incrementAndGet();
+			duringRead.run();
+			Coupon coupon = new Coupon(id);
+			coupon.setAmount(AMOUNT);
+			return coupon;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		InMemoryCache lru = new InMemoryCache(2, Duration.ofMinutes(1));
+		for (int id : new int[] { 1, 2, 1, 3, 1, 2 }) {
+			lru.read(id);
+		}
+		CacheMetrics metrics = lru.getCacheMetrics();
+		// 3 evicts 2, the least recently read; then 2 evicts 3.
+		boolean evicted = lru.reads.get() == 4 && metrics.getHits() == 2 && metrics.getEvictions() == 2 && metrics.getSize() == 2;
+		System.out.println("lru        : reads=" + lru.reads + ", " + metrics);
+
+		InMemoryCache ttl = new InMemoryCache(10, Duration.ofMillis(50));
+		ttl.read(1);
+		ttl.read(1);
+		Thread.sleep(100);
+		ttl.read(1);
+		boolean expired = ttl.reads.get() == 2 && ttl.getCacheMetrics().getExpirations() == 1;
+		System.out.println("ttl        : reads=" + ttl.reads + ", " + ttl.getCacheMetrics());
+
+		InMemoryCache raced = new InMemoryCache(10, Duration.ofMinutes(1));
+		raced.duringRead = raced::invalidateAll;
+		raced.read(1);
+		raced.duringRead = () -> {
+		};
+		raced.read(1);
+		raced.read(1);
+		boolean guarded = raced.reads.get() == 2;
+		System.out.println("raced read : reads=" + raced.reads + ", " + raced.getCacheMetrics());
+
+		InMemoryCache copies = new InMemoryCache(10, Duration.ofMinutes(1));
+		copies.read(1).setAmount(AMOUNT + 1);
+		boolean copied = copies.read(1).getAmount() == AMOUNT && copies.reads.get() == 1;
+		System.out.println("copies     : cached amount=" + copies.read(1).getAmount());
+
+		System.out.println(evicted && expired && guarded && copied ? "PASSED" : "FAILED");
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.database.utils.testerClasses;
+
+import java.time.Duration;
+
+import com.sys.beans.Coupon;
+import com.sys.connection.ConnectionPool;
+import com.sys.dao.CachedCouponDBDAO;
+import com.sys.dao.CouponDBDAO;
+
+/**
+ * Reads coupon {@link #COUPON_ID} {@link #READS} times through a {@link CachedCouponDBDAO} and through a plain {@link CouponDBDAO},
+ * prints the time of each and the cache's metrics, then updates the coupon through the cache.</br>
+ * Passes when the read after the update sees the new amount and version, and a changed copy never leaks into the cache.
+ * Expects coupon {@link #COUPON_ID} in the DB, served by the Derby network server at the pool's URL,
+ * with the Derby client driver on the classpath. {@link CouponCacheEvictionTester} checks the eviction rules without a DB.
+ */
+public class CouponCacheTester {
+	static final int COUPON_ID = 1;
+	static final int READS = 10_000;
+
+	public static void main(String[] args) throws Exception {
+		CouponDBDAO plain = new CouponDBDAO();
+		CachedCouponDBDAO cached = new CachedCouponDBDAO(100, Duration.ofMinutes(1));
+
+		long start = System.nanoTime();
+		for (int i = 0; i < READS; i++) {
+			plain.read(COUPON_ID);
+		}
+		long plainNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < READS; i++) {
+			cached.read(COUPON_ID);
+		}
+		long cachedNanos = System.nanoTime() - start;
+		System.out.println("plain  : " + plainNanos / READS / 1000.0 + " us per read");
+		System.out.println("cached : " + cachedNanos / READS / 1000.0 + " us per read");
+
+		Coupon coupon = cached.read(COUPON_ID);
+		int amount = coupon.getAmount();
+		coupon.setAmount(amount + 1);
+		boolean copied = cached.read(COUPON_ID).getAmount() == amount;
+		cached.update(coupon);
+		Coupon reread = cached.read(COUPON_ID);
+		boolean invalidated = reread.getAmount() == amount + 1 && reread.getVersion() == plain.read(COUPON_ID).getVersion();
+		reread.setAmount(amount);
+		cached.update(reread);
+
+		System.out.println(cached.getCacheMetrics());
+		System.out.println(copied && invalidated ? "PASSED" : "FAILED");
+
+		ConnectionPool.getInstance().closeAllConnections();
+	}
+
+}
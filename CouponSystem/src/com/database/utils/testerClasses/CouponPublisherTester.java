@@ -0,0 +1,87 @@
+package com.database.utils.testerClasses;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sys.beans.Coupon;
+import com.sys.connection.ConnectionPool;
+import com.sys.dao.CouponDBDAO;
+
+/**
+ * Subscribes a slow reader to {@link CouponDBDAO#publish(int)}: it asks for {@link #BATCH} coupons at a time,
+ * pauses after each batch, and cancels after {@link #TAKE} coupons.</br>
+ * Passes when it got no more coupons than it asked for, and the publisher gave the connection back after the cancel.
+ * Expects more than {@link #TAKE} coupons in the DB, served by the Derby network server at the pool's URL,
+ * with the Derby client driver on the classpath. {@link CursorPublisherTester} checks the publisher's demand and completion without a DB.
+ */
+public class CouponPublisherTester {
+	static final int BATCH = 10;
+	static final int TAKE = 100;
+	static final int FETCH_SIZE = 50;
+
+	public static void main(String[] args) throws Exception {
+		ConnectionPool pool = ConnectionPool.getInstance();
+		CountDownLatch cancelled = new CountDownLatch(1);
+		AtomicInteger received = new AtomicInteger();
+		AtomicInteger requested = new AtomicInteger();
+		AtomicInteger overflow = new AtomicInteger();
+
+		new CouponDBDAO().publish(FETCH_SIZE).subscribe(new Flow.Subscriber<Coupon>() {
+			private Flow.Subscription subscription;
+
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				this.subscription = subscription;
+				requested.addAndGet(BATCH);
+				subscription.request(BATCH);
+			}
+
+			@Override
+			public void onNext(Coupon coupon) {
+				int count = received.incrementAndGet();
+				if (count > requested.get()) {
+					overflow.incrementAndGet();
+				}
+				if (count == TAKE) {
+					subscription.cancel();
+					cancelled.countDown();
+				} else if (count % BATCH == 0) {
+					sleep(50);
+					requested.addAndGet(BATCH);
+					subscription.request(BATCH);
+				}
+			}
+
+			@Override
+			public void onError(Throwable e) {
+				e.printStackTrace();
+				cancelled.countDown();
+			}
+
+			@Override
+			public void onComplete() {
+				cancelled.countDown();
+			}
+		});
+
+		boolean finished = cancelled.await(1, TimeUnit.MINUTES);
+		sleep(200);
+		int inUse = pool.getInUseConnections();
+		System.out.println("received=" + received + ", over demand=" + overflow + ", connections in use after cancel=" + inUse);
+		boolean passed = finished && received.get() == TAKE && overflow.get() == 0 && inUse == 0;
+		System.out.println(passed ? "PASSED" : "FAILED");
+
+		pool.closeAllConnections();
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.database.utils.testerClasses;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sys.beans.CustomerType;
+import com.sys.dao.CredentialIndex;
+
+/**
+ * Checks {@link CredentialIndex} over in-memory credential rows, so it needs no DB:
+ * salted hashes accept only the right password, a company and a customer sharing an email are both found,
+ * an email known for one role is looked up for the other, repeated failed logins read the rows once,
+ * and a warm-up that read a row before a DAO changed it keeps what the DAO wrote.</br>
+ * Passes when every lookup finds the expected role and id, and the rows are read exactly as often as expected.
+ */
+public class CredentialIndexMergeTester {
+
+	/**
+	 * Index whose "DB" is a list of rows, changed the way the DAOs do: the row first, then the index.
+	 */
+	static class InMemoryIndex extends CredentialIndex {
+		private final List<Object[]> rows = new ArrayList<>();
+		private int reads;
+		private Runnable duringRead = () -> {
+		};
+
+		void row(CustomerType role, int id, String email, String password) {
+			rows.removeIf(row -> row[0] == role && (int) row[1] == id);
+			rows.add(new Object[] { role, id, email, password });
+		}
+
+		void write(CustomerType role, int id, String email, String password) {
+			row(role, id, email, password);
+			put(role, id, email, password);
+		}
+
+		void delete(CustomerType role, int id) {
+			rows.removeIf(row -> row[0] == role && (int) row[1] == id);
+			remove(role, id);
+		}
+
+		@Override
+		protected List<Credential> readAll() {
+			reads++;
+			List<Credential> result = read(null);
+			duringRead.run();
+			return result;
+		}
+
+		@Override
+		protected List<Credential> readByEmail(String email) {
+			reads++;
+			return read(email);
+		}
+
+		private List<Credential> read(String email) {
+			List<Credential> result = new ArrayList<>();
+			for (Object[] row : rows) {
+				if (email == null || email.equals(row[2])) {
+					result.add(credential((CustomerType) row[0], (int) row[1], (String) row[2], (String) row[3]));
+				}
+			}
+			return result;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		InMemoryIndex index = new InMemoryIndex();
+		index.row(CustomerType.COMPANY, 1, "shared@coupons.com", "company-password");
+		index.row(CustomerType.CUSTOMER, 1, "shared@coupons.com", "customer-password");
+		index.row(CustomerType.CUSTOMER, 2, "customer@coupons.com", "password");
+
+		// before the warm-up, an email indexed for its company is still looked up for its customer.
+		index.write(CustomerType.COMPANY, 1, "shared@coupons.com", "company-password");
+		boolean otherRole = is(index.find("shared@coupons.com", "customer-password"), CustomerType.CUSTOMER, 1)
+				&& is(index.find("shared@coupons.com", "company-password"), CustomerType.COMPANY, 1)
+				&& index.reads == 1;
+		System.out.println("other role  : reads=" + index.reads);
+
+		boolean hashed = index.find("customer@coupons.com", "wrong") == null
+				&& index.find("customer@coupons.com", "wrong") == null
+				&& is(index.find("customer@coupons.com", "password"), CustomerType.CUSTOMER, 2)
+				&& index.find("customer@coupons.com", "") == null
+				&& index.reads == 2;
+		System.out.println("hashes      : reads=" + index.reads);
+
+		index.write(CustomerType.CUSTOMER, 3, "same@coupons.com", "same-password");
+		index.write(CustomerType.COMPANY, 3, "same@coupons.com", "same-password");
+		boolean companyFirst = is(index.find("same@coupons.com", "same-password"), CustomerType.COMPANY, 3);
+		System.out.println("same email  : " + index.find("same@coupons.com", "same-password"));
+
+		int before = index.reads;
+		for (int i = 0; i < 100; i++) {
+			index.find("nobody@coupons.com", "password");
+		}
+		boolean missesCached = index.reads == before + 1;
+		System.out.println("misses      : " + (index.reads - before) + " reads for 100 failed logins");
+
+		InMemoryIndex warmed = new InMemoryIndex();
+		warmed.row(CustomerType.COMPANY, 1, "company@coupons.com", "old-password");
+		warmed.row(CustomerType.CUSTOMER, 1, "customer@coupons.com", "password");
+		// the DAOs change both rows after the warm-up read them.
+		warmed.duringRead = () -> {
+			warmed.write(CustomerType.COMPANY, 1, "company@coupons.com", "new-password");
+			warmed.delete(CustomerType.CUSTOMER, 1);
+		};
+		warmed.warmUp();
+		warmed.duringRead = () -> {
+		};
+		boolean merged = is(warmed.find("company@coupons.com", "new-password"), CustomerType.COMPANY, 1)
+				&& warmed.find("company@coupons.com", "old-password") == null
+				&& warmed.size() == 1;
+		System.out.println("warm-up     : " + warmed.size() + " credentials after the race");
+
+		System.out.println(otherRole && hashed && companyFirst && missesCached && merged ? "PASSED" : "FAILED");
+	}
+
+	private static boolean is(CredentialIndex.Credential credential, CustomerType role, int id) {
+		return credential != null && credential.getRole() == role && credential.getId() == id;
+	}
+
+}
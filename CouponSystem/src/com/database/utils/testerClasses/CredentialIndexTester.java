@@ -0,0 +1,75 @@
+package com.database.utils.testerClasses;
+
+import com.sys.beans.Customer;
+import com.sys.connection.ConnectionPool;
+import com.sys.dao.CompanyDBDAO;
+import com.sys.dao.CouponDBDAO;
+import com.sys.dao.CredentialIndex;
+import com.sys.dao.CustomerDBDAO;
+
+/**
+ * Resolves the login of customer {@link #CUSTOMER_ID} {@link #LOGINS} times the way {@code LoginManager} used to,
+ * with {@code exists} and {@code getIdByEmail} on both DAOs, and then with a warmed {@link CredentialIndex},
+ * and prints the time and pool borrows of each.</br>
+ * Then changes the customer's password through a DAO that keeps the index, and passes when the index
+ * accepts only the new password, and when {@link #LOGINS} failed logins with an unknown email borrow a connection only once.
+ * Expects customer {@link #CUSTOMER_ID} in the DB, served by the Derby network server at the pool's URL,
+ * with the Derby client driver on the classpath. {@link CredentialIndexMergeTester} checks the index without a DB.
+ */
+public class CredentialIndexTester {
+	static final int CUSTOMER_ID = 1;
+	static final int LOGINS = 2_000;
+
+	public static void main(String[] args) throws Exception {
+		ConnectionPool pool = ConnectionPool.getInstance();
+		CouponDBDAO couponDao = new CouponDBDAO();
+		CredentialIndex credentials = new CredentialIndex();
+		CompanyDBDAO companyDao = new CompanyDBDAO(couponDao, credentials);
+		CustomerDBDAO customerDao = new CustomerDBDAO(couponDao, credentials);
+		Customer customer = customerDao.read(CUSTOMER_ID);
+		String email = customer.getEmail();
+		String password = customer.getPassword();
+
+		long borrows = pool.getMetrics().getBorrowWait().getCount();
+		long start = System.nanoTime();
+		for (int i = 0; i < LOGINS; i++) {
+			if (!companyDao.exists(email, password) && customerDao.exists(email, password)) {
+				customerDao.getIdByEmail(email);
+			}
+		}
+		long queries = System.nanoTime() - start;
+		long queryBorrows = pool.getMetrics().getBorrowWait().getCount() - borrows;
+
+		credentials.warmUp();
+		borrows = pool.getMetrics().getBorrowWait().getCount();
+		start = System.nanoTime();
+		for (int i = 0; i < LOGINS; i++) {
+			credentials.find(email, password);
+		}
+		long indexed = System.nanoTime() - start;
+		long indexBorrows = pool.getMetrics().getBorrowWait().getCount() - borrows;
+
+		System.out.println("queries : " + queries / LOGINS / 1000.0 + " us per login, " + queryBorrows + " borrows");
+		System.out.println("index   : " + indexed / LOGINS / 1000.0 + " us per login, " + indexBorrows + " borrows, "
+				+ credentials.size() + " credentials");
+
+		customer.setPassword(password + "-changed");
+		customerDao.update(customer);
+		boolean followsUpdate = credentials.find(email, password) == null
+				&& credentials.find(email, password + "-changed") != null;
+		customer.setPassword(password);
+		customerDao.update(customer);
+		boolean found = credentials.find(email, password).getId() == CUSTOMER_ID;
+
+		borrows = pool.getMetrics().getBorrowWait().getCount();
+		for (int i = 0; i < LOGINS; i++) {
+			credentials.find("nobody-" + email, password);
+		}
+		long missBorrows = pool.getMetrics().getBorrowWait().getCount() - borrows;
+		System.out.println("misses  : " + missBorrows + " borrows for " + LOGINS + " failed logins");
+		System.out.println(followsUpdate && found && missBorrows == 1 ? "PASSED" : "FAILED");
+
+		pool.closeAllConnections();
+	}
+
+}
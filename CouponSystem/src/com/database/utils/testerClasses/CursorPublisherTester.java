@@ -0,0 +1,159 @@
+package com.database.utils.testerClasses;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import com.sys.connection.ConnectionPool;
+import com.sys.connection.DbExecutor;
+import com.sys.connection.PoolConfiguration;
+import com.sys.dao.CursorPublisher;
+
+/**
+ * Subscribes readers to a {@link CursorPublisher} over an in-memory cursor of {@link #ROWS} rows, so it needs no DB:
+ * one that asks for exactly {@link #ROWS} rows and never asks again, one that asks for {@link #BATCH} rows at a time
+ * and cancels after {@link #TAKE}, and one that asks for 0 rows.</br>
+ * Passes when the first is completed, the second gets no more rows than it asked for, the third gets {@code onError},
+ * and every cursor is closed and its cursor permit given back.
+ */
+public class CursorPublisherTester {
+	static final int ROWS = 250;
+	static final int BATCH = 10;
+	static final int TAKE = 100;
+
+	public static void main(String[] args) throws Exception {
+		// no connection is opened: the cursors are in memory.
+		PoolConfiguration configuration = new PoolConfiguration();
+		configuration.setMinConnections(0);
+		ConnectionPool.configure(configuration);
+		DbExecutor executor = DbExecutor.getInstance();
+		int permits = executor.getAvailableCursors();
+
+		AtomicBoolean exactClosed = new AtomicBoolean();
+		CountDownLatch completed = new CountDownLatch(1);
+		AtomicInteger exactReceived = new AtomicInteger();
+		new CursorPublisher<>(() -> IntStream.range(0, ROWS).boxed().onClose(() -> exactClosed.set(true)), executor)
+				.subscribe(new Flow.Subscriber<Integer>() {
+					@Override
+					public void onSubscribe(Flow.Subscription subscription) {
+						subscription.request(ROWS);
+					}
+
+					@Override
+					public void onNext(Integer row) {
+						exactReceived.incrementAndGet();
+					}
+
+					@Override
+					public void onError(Throwable e) {
+						e.printStackTrace();
+					}
+
+					@Override
+					public void onComplete() {
+						completed.countDown();
+					}
+				});
+		boolean exactCompleted = completed.await(10, TimeUnit.SECONDS);
+		sleep(100);
+		boolean exact = exactCompleted && exactReceived.get() == ROWS && exactClosed.get()
+				&& executor.getAvailableCursors() == permits;
+		System.out.println("exact demand : received=" + exactReceived + ", completed=" + exactCompleted + ", closed="
+				+ exactClosed + ", cursor permits " + permits + " -> " + executor.getAvailableCursors());
+
+		AtomicBoolean batchClosed = new AtomicBoolean();
+		CountDownLatch cancelled = new CountDownLatch(1);
+		AtomicInteger received = new AtomicInteger();
+		AtomicInteger requested = new AtomicInteger();
+		AtomicInteger overflow = new AtomicInteger();
+		new CursorPublisher<>(() -> IntStream.range(0, ROWS).boxed().onClose(() -> batchClosed.set(true)), executor)
+				.subscribe(new Flow.Subscriber<Integer>() {
+					private Flow.Subscription subscription;
+
+					@Override
+					public void onSubscribe(Flow.Subscription subscription) {
+						this.subscription = subscription;
+						requested.addAndGet(BATCH);
+						subscription.request(BATCH);
+					}
+
+					@Override
+					public void onNext(Integer row) {
+						int count = received.incrementAndGet();
+						if (count > requested.get()) {
+							overflow.incrementAndGet();
+						}
+						if (count == TAKE) {
+							subscription.cancel();
+							cancelled.countDown();
+						} else if (count % BATCH == 0) {
+							requested.addAndGet(BATCH);
+							subscription.request(BATCH);
+						}
+					}
+
+					@Override
+					public void onError(Throwable e) {
+						e.printStackTrace();
+						cancelled.countDown();
+					}
+
+					@Override
+					public void onComplete() {
+						cancelled.countDown();
+					}
+				});
+		boolean batchFinished = cancelled.await(10, TimeUnit.SECONDS);
+		sleep(100);
+		boolean batches = batchFinished && received.get() == TAKE && overflow.get() == 0 && batchClosed.get()
+				&& executor.getAvailableCursors() == permits;
+		System.out.println("batches      : received=" + received + ", over demand=" + overflow + ", closed=" + batchClosed
+				+ ", cursor permits " + permits + " -> " + executor.getAvailableCursors());
+
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		CountDownLatch failed = new CountDownLatch(1);
+		new CursorPublisher<>(() -> IntStream.range(0, ROWS).boxed(), executor).subscribe(new Flow.Subscriber<Integer>() {
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscription.request(0);
+			}
+
+			@Override
+			public void onNext(Integer row) {
+			}
+
+			@Override
+			public void onError(Throwable e) {
+				error.set(e);
+				failed.countDown();
+			}
+
+			@Override
+			public void onComplete() {
+				failed.countDown();
+			}
+		});
+		boolean invalidFinished = failed.await(10, TimeUnit.SECONDS);
+		boolean invalid = invalidFinished && error.get() instanceof IllegalArgumentException
+				&& executor.getAvailableCursors() == permits;
+		System.out.println("request(0)   : " + error.get());
+
+		System.out.println(exact && batches && invalid ? "PASSED" : "FAILED");
+
+		executor.shutdown();
+		ConnectionPool.getInstance().closeAllConnections();
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
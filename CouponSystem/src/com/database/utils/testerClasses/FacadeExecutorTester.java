@@ -0,0 +1,79 @@
+package com.database.utils.testerClasses;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.sys.connection.ConnectionPool;
+import com.sys.dao.CouponDBDAO;
+import com.sys.dao.CustomerDBDAO;
+import com.sys.exception.CouponSystemException;
+import com.sys.facades.CustomerFacade;
+import com.sys.facades.FacadeExecutor;
+import com.sys.facades.FacadeExecutor.Mode;
+
+/**
+ * Runs 10,000 concurrent simulated {@code CustomerFacade} sessions on platform threads and then on virtual threads,
+ * and prints the throughput of each.</br>
+ * Every session reads its customer's coupons a few times, so expects customers with ids 1 to {@link #CUSTOMERS} in the DB.
+ */
+public class FacadeExecutorTester {
+	static final int SESSIONS = 10_000;
+	static final int CALLS_PER_SESSION = 5;
+	static final int CUSTOMERS = 100;
+	static final int PLATFORM_THREADS = 200;
+
+	public static void main(String[] args) throws Exception {
+		CouponDBDAO couponDao = new CouponDBDAO();
+		CustomerDBDAO customerDao = new CustomerDBDAO(couponDao);
+
+		// warm up the pool and the statement caches.
+		run(Mode.PLATFORM, couponDao, customerDao, SESSIONS / 10);
+		long platform = run(Mode.PLATFORM, couponDao, customerDao, SESSIONS);
+		System.out.println("platform (" + PLATFORM_THREADS + " threads) : " + perSecond(platform) + " calls per second");
+
+		if (FacadeExecutor.isVirtualThreadSupported()) {
+			run(Mode.VIRTUAL, couponDao, customerDao, SESSIONS / 10);
+			long virtual = run(Mode.VIRTUAL, couponDao, customerDao, SESSIONS);
+			System.out.println("virtual                : " + perSecond(virtual) + " calls per second");
+		} else {
+			System.out.println("virtual                : not supported on Java " + System.getProperty("java.version"));
+		}
+		ConnectionPool.getInstance().closeAllConnections();
+	}
+
+	/**
+	 * @return elapsed nanoseconds.
+	 */
+	static long run(Mode mode, CouponDBDAO couponDao, CustomerDBDAO customerDao, int sessions)
+			throws CouponSystemException, InterruptedException {
+		long start = System.nanoTime();
+		try (FacadeExecutor executor = new FacadeExecutor(mode, PLATFORM_THREADS)) {
+			List<Future<Integer>> results = new ArrayList<>(sessions);
+			for (int i = 0; i < sessions; i++) {
+				CustomerFacade facade = new CustomerFacade(i % CUSTOMERS + 1, couponDao, customerDao);
+				results.add(executor.submit(() -> {
+					int coupons = 0;
+					for (int call = 0; call < CALLS_PER_SESSION; call++) {
+						coupons += facade.getAllCopounsOfCustomer().size();
+					}
+					return coupons;
+				}));
+			}
+			for (Future<Integer> result : results) {
+				try {
+					result.get();
+				} catch (ExecutionException e) {
+					e.getCause().printStackTrace();
+				}
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	static long perSecond(long elapsedNanos) {
+		return (long) SESSIONS * CALLS_PER_SESSION * 1_000_000_000L / elapsedNanos;
+	}
+
+}
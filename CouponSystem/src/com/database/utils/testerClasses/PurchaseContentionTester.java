@@ -0,0 +1,79 @@
+package com.database.utils.testerClasses;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sys.beans.Coupon;
+import com.sys.connection.ConnectionPool;
+import com.sys.dao.CouponDBDAO;
+import com.sys.dao.PurchaseResult;
+import com.sys.exception.CouponSystemException;
+
+/**
+ * Lets {@link #BUYERS} customers buy the same coupon at once, each buyer on its own thread, with only {@link #STOCK} in stock.</br>
+ * Passes when exactly {@link #STOCK} purchases succeed, the coupon's amount ends at zero,
+ * and every sold coupon has its row in {@code customers_vs_coupons}.</br>
+ * Expects coupon {@link #COUPON_ID}, not yet expired, and customers with ids 1 to {@link #BUYERS} in the DB,
+ * served by the Derby network server at the pool's URL, with the Derby client driver on the classpath.
+ */
+public class PurchaseContentionTester {
+	static final int COUPON_ID = 1;
+	static final int STOCK = 50;
+	static final int BUYERS = 500;
+
+	public static void main(String[] args) throws Exception {
+		CouponDBDAO dao = new CouponDBDAO();
+		Coupon coupon = dao.read(COUPON_ID);
+		dao.deleteAllFromHistory(COUPON_ID);
+		coupon.setAmount(STOCK);
+		dao.update(coupon);
+
+		Map<PurchaseResult, AtomicInteger> results = new EnumMap<>(PurchaseResult.class);
+		for (PurchaseResult result : PurchaseResult.values()) {
+			results.put(result, new AtomicInteger());
+		}
+		AtomicInteger failures = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> buyers = new ArrayList<>();
+		for (int customerId = 1; customerId <= BUYERS; customerId++) {
+			int buyer = customerId;
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+					results.get(dao.purchase(buyer, COUPON_ID)).incrementAndGet();
+				} catch (CouponSystemException | InterruptedException e) {
+					failures.incrementAndGet();
+					e.printStackTrace();
+				}
+			});
+			buyers.add(thread);
+			thread.start();
+		}
+		start.countDown();
+		for (Thread thread : buyers) {
+			thread.join();
+		}
+
+		int sold = results.get(PurchaseResult.PURCHASED).get();
+		int left = dao.read(COUPON_ID).getAmount();
+		int recorded = 0;
+		for (int customerId = 1; customerId <= BUYERS; customerId++) {
+			if (dao.exists(customerId, COUPON_ID)) {
+				recorded++;
+			}
+		}
+		System.out.println(BUYERS + " buyers, " + STOCK + " in stock: " + results + ", errors=" + failures);
+		System.out.println("sold=" + sold + ", left=" + left + ", history rows=" + recorded);
+		System.out.println("oversold=" + Math.max(0, sold - STOCK));
+		boolean passed = sold == STOCK && left == 0 && recorded == sold && failures.get() == 0;
+		System.out.println(passed ? "PASSED" : "FAILED");
+
+		dao.deleteAllFromHistory(COUPON_ID);
+		ConnectionPool.getInstance().closeAllConnections();
+	}
+
+}
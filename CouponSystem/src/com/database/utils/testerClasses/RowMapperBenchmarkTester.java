@@ -0,0 +1,138 @@
+package com.database.utils.testerClasses;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Locale;
+
+import com.sys.beans.Category;
+import com.sys.beans.Coupon;
+import com.sys.dao.CouponDBDAO;
+import com.sys.dao.RowMapper;
+
+/**
+ * Maps {@link #ROWS} in-memory coupon rows twice: the way the DAOs used to, reading every column by name and the
+ * category with {@code Category.valueOf}, and with the mapper {@link CouponDBDAO#rowMapper(String)} compiles,
+ * which reads by index.</br>
+ * The rows come from a {@code ResultSet} proxy that finds a label the way a driver does, by scanning the columns,
+ * so no DB is needed and only the mapping is timed.
+ */
+public class RowMapperBenchmarkTester {
+	static final int ROWS = 1_000_000;
+	static final int ROUNDS = 5;
+
+	static final String[] COLUMNS = { "ID", "COMPANY_ID", "CATEGORY_ID", "TITLE", "START_DATE", "END_DATE", "AMOUNT",
+			"TYPE", "DESCRIPTION", "PRICE", "IMAGE", "VERSION" };
+
+	public static void main(String[] args) throws Exception {
+		RowMapper<Coupon> byName = RowMapperBenchmarkTester::mapByName;
+		for (int round = 1; round <= ROUNDS; round++) {
+			long byNameNanos = run(byName);
+			long compiledNanos = run(CouponDBDAO.rowMapper("select * from coupons"));
+			System.out.printf("round %d: by name %d ms, compiled %d ms (%.1fx)%n", round, byNameNanos / 1_000_000,
+					compiledNanos / 1_000_000, (double) byNameNanos / compiledNanos);
+		}
+	}
+
+	private static long run(RowMapper<Coupon> mapper) throws SQLException {
+		ResultSet rs = rows();
+		long checksum = 0;
+		long start = System.nanoTime();
+		while (rs.next()) {
+			Coupon coupon = mapper.map(rs);
+			checksum += coupon.getId() + coupon.getCouponType().ordinal();
+		}
+		long nanos = System.nanoTime() - start;
+		if (checksum == 0) {
+			System.out.println("no rows mapped");
+		}
+		return nanos;
+	}
+
+	private static Coupon mapByName(ResultSet rs) throws SQLException {
+		Coupon result = new Coupon();
+		result.setId(rs.getInt("id"));
+		result.setAmount(rs.getInt("amount"));
+		result.setTitle(rs.getString("title"));
+		result.setDescription(rs.getString("description"));
+		result.setCouponType(Category.valueOf(rs.getString("type")));
+		result.setPrice(rs.getDouble("price"));
+		result.setStartDate(rs.getDate("start_date"));
+		result.setEndDate(rs.getDate("end_date"));
+		result.setImage(rs.getString("image"));
+		result.setCompanyId(rs.getInt("company_id"));
+		result.setCategoryId(rs.getInt("category_id"));
+		result.setVersion(rs.getInt("version"));
+		return result;
+	}
+
+	private static Object value(int row, int column) {
+		switch (COLUMNS[column - 1]) {
+		case "TITLE":
+			return "coupon " + (row % 1000);
+		case "DESCRIPTION":
+			return "description";
+		case "IMAGE":
+			return "image.png";
+		case "TYPE":
+			return Category.values()[row % Category.values().length].name();
+		case "START_DATE":
+		case "END_DATE":
+			return new Date(0);
+		case "PRICE":
+			return 9.99;
+		default:
+			return row;
+		}
+	}
+
+	private static ResultSet rows() {
+		Object[][] values = new Object[1000][COLUMNS.length + 1];
+		for (int row = 0; row < values.length; row++) {
+			for (int column = 1; column <= COLUMNS.length; column++) {
+				values[row][column] = value(row + 1, column);
+			}
+		}
+		ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+				ResultSetMetaData.class.getClassLoader(), new Class<?>[] { ResultSetMetaData.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getColumnCount":
+						return COLUMNS.length;
+					case "getColumnLabel":
+					case "getColumnName":
+						return COLUMNS[(Integer) args[0] - 1];
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		int[] cursor = { 0 };
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("next")) {
+						return ++cursor[0] <= ROWS;
+					}
+					if (method.getName().equals("getMetaData")) {
+						return metaData;
+					}
+					int column = args[0] instanceof Integer ? (Integer) args[0] : findColumn((String) args[0]);
+					Object value = values[(cursor[0] - 1) % values.length][column];
+					if (method.getName().equals("getInt")) {
+						return column == 1 ? cursor[0] : (Integer) value;
+					}
+					return value;
+				});
+	}
+
+	private static int findColumn(String label) throws SQLException {
+		for (int i = 0; i < COLUMNS.length; i++) {
+			if (COLUMNS[i].equals(label.toUpperCase(Locale.ROOT))) {
+				return i + 1;
+			}
+		}
+		throw new SQLException("no column " + label);
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.database.utils.testerClasses;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+import com.sys.connection.ConnectionPool;
+import com.sys.connection.Histogram;
+import com.sys.schema.SchemaManager;
+
+/**
+ * Times the lookups the DAOs make, by email, by company and by end date, on two scratch tables of {@link #ROWS} rows:
+ * one without indexes, one with the same indexes {@link SchemaManager} creates on the real tables.</br>
+ * Works on its own tables, so the real data is not touched; they are dropped at the end.
+ */
+public class SchemaIndexBenchmarkTester {
+	static final int ROWS = 200_000;
+	static final int COMPANIES = 2_000;
+	static final int LOOKUPS = 1_000;
+	static final int BATCH = 1_000;
+
+	static final String PLAIN = "bench_plain";
+	static final String INDEXED = "bench_indexed";
+
+	public static void main(String[] args) throws Exception {
+		ConnectionPool pool = ConnectionPool.getInstance();
+		Connection connection = pool.getConnection();
+		try {
+			for (String table : new String[] { PLAIN, INDEXED }) {
+				create(connection, table);
+				fill(connection, table);
+			}
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("create unique index " + INDEXED + "_email on " + INDEXED + " (email)");
+				statement.execute("create index " + INDEXED + "_company on " + INDEXED + " (company_id, id)");
+				statement.execute("create index " + INDEXED + "_end_date on " + INDEXED + " (end_date, id)");
+			}
+
+			for (String table : new String[] { PLAIN, INDEXED }) {
+				System.out.println(table + ":");
+				System.out.println("  by email:    " + time(connection, "select id from " + table + " where email = ?",
+						(read, random) -> read.setString(1, "user" + random.nextInt(ROWS) + "@bench.com")));
+				System.out.println("  by company:  " + time(connection, "select * from " + table + " where company_id = ?",
+						(read, random) -> read.setInt(1, random.nextInt(COMPANIES))));
+				System.out.println("  expired ids: " + time(connection, "select id from " + table
+						+ " where end_date < ? and id > ? order by id fetch first 100 rows only", (read, random) -> {
+							read.setDate(1, Date.valueOf("2020-01-01"));
+							read.setInt(2, random.nextInt(ROWS));
+						}));
+			}
+		} finally {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("drop table " + PLAIN);
+				statement.execute("drop table " + INDEXED);
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+			pool.restoreConnection(connection);
+			pool.closeAllConnections();
+		}
+	}
+
+	interface Binder {
+		void bind(PreparedStatement read, Random random) throws SQLException;
+	}
+
+	static void create(Connection connection, String table) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("create table " + table + " (id int not null generated always as identity primary key, "
+					+ "company_id int not null, email varchar(100) not null, end_date date not null)");
+		}
+	}
+
+	static void fill(Connection connection, String table) throws SQLException {
+		Random random = new Random(7);
+		connection.setAutoCommit(false);
+		try (PreparedStatement insert = connection
+				.prepareStatement("insert into " + table + " (company_id,email,end_date) values (?,?,?)")) {
+			for (int i = 0; i < ROWS; i++) {
+				insert.setInt(1, random.nextInt(COMPANIES));
+				insert.setString(2, "user" + i + "@bench.com");
+				// about a tenth of the rows end before 2020.
+				insert.setDate(3, Date.valueOf(random.nextInt(10) == 0 ? "2015-06-01" : "2030-06-01"));
+				insert.addBatch();
+				if ((i + 1) % BATCH == 0) {
+					insert.executeBatch();
+				}
+			}
+			insert.executeBatch();
+			connection.commit();
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+	static Histogram.Snapshot time(Connection connection, String sql, Binder binder) throws SQLException {
+		Histogram histogram = new Histogram();
+		Random random = new Random(11);
+		try (PreparedStatement read = connection.prepareStatement(sql)) {
+			for (int i = 0; i < LOOKUPS; i++) {
+				binder.bind(read, random);
+				long start = System.nanoTime();
+				ResultSet rs = read.executeQuery();
+				while (rs.next()) {
+					rs.getInt(1);
+				}
+				rs.close();
+				histogram.record(System.nanoTime() - start);
+			}
+		}
+		return histogram.snapshot();
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.database.utils.testerClasses;
+
+import java.time.Duration;
+
+import com.sys.dao.CompanyDBDAO;
+import com.sys.dao.CouponDBDAO;
+import com.sys.exception.CouponSystemException;
+import com.sys.facades.ClientFacade;
+import com.sys.facades.CompanyFacade;
+import com.sys.facades.SessionManager;
+
+/**
+ * Checks {@link SessionManager} with facades that are never used, so it needs no DB:
+ * tokens resolve to their own facade, a session resolved within its idle timeout stays open,
+ * an idle one is expired by the timing wheel, a closed or unknown token does not resolve,
+ * and no more than the maximum of sessions can be open.</br>
+ * Passes when each of these holds and the open and expired counts match.
+ */
+public class SessionExpiryTester {
+	static final Duration IDLE_TIMEOUT = Duration.ofMillis(200);
+	static final Duration TICK = Duration.ofMillis(10);
+	static final int MAX_SESSIONS = 3;
+
+	public static void main(String[] args) throws Exception {
+		CouponDBDAO couponDao = new CouponDBDAO();
+		CompanyDBDAO companyDao = new CompanyDBDAO(couponDao);
+		ClientFacade first = new CompanyFacade(1, companyDao, couponDao);
+		ClientFacade second = new CompanyFacade(2, companyDao, couponDao);
+
+		try (SessionManager sessions = new SessionManager(IDLE_TIMEOUT, TICK, MAX_SESSIONS)) {
+			String firstToken = sessions.open(first);
+			String secondToken = sessions.open(second);
+			boolean resolved = !firstToken.equals(secondToken) && sessions.resolve(firstToken) == first
+					&& sessions.resolve(secondToken) == second;
+			System.out.println("resolve     : " + resolved);
+
+			// the first session is used every half timeout, the second is left idle.
+			for (int i = 0; i < 6; i++) {
+				Thread.sleep(IDLE_TIMEOUT.toMillis() / 2);
+				sessions.resolve(firstToken);
+			}
+			boolean kept = sessions.resolve(firstToken) == first;
+			// counted before the resolve, which would expire it by itself.
+			boolean expired = sessions.getExpiredSessions() == 1 && sessions.getOpenSessions() == 1
+					&& !resolves(sessions, secondToken);
+			System.out.println("idle expiry : kept=" + kept + ", expired=" + sessions.getExpiredSessions() + ", open="
+					+ sessions.getOpenSessions());
+
+			sessions.close(firstToken);
+			boolean closed = !resolves(sessions, firstToken) && !resolves(sessions, "unknown") && !resolves(sessions, null)
+					&& sessions.getOpenSessions() == 0;
+			System.out.println("close       : open=" + sessions.getOpenSessions());
+
+			for (int i = 0; i < MAX_SESSIONS; i++) {
+				sessions.open(first);
+			}
+			boolean bounded;
+			try {
+				sessions.open(first);
+				bounded = false;
+			} catch (CouponSystemException e) {
+				bounded = sessions.getRejectedSessions() == 1 && sessions.getOpenSessions() == MAX_SESSIONS;
+			}
+			System.out.println("max sessions: open=" + sessions.getOpenSessions() + ", rejected=" + sessions.getRejectedSessions());
+
+			System.out.println(resolved && kept && expired && closed && bounded ? "PASSED" : "FAILED");
+		}
+	}
+
+	private static boolean resolves(SessionManager sessions, String token) {
+		try {
+			sessions.resolve(token);
+			return true;
+		} catch (CouponSystemException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.database.utils.testerClasses;
+
+import com.sys.beans.Customer;
+import com.sys.connection.ConnectionPool;
+import com.sys.dao.CouponDBDAO;
+import com.sys.dao.CustomerDBDAO;
+import com.sys.exception.CouponSystemException;
+import com.sys.facades.ClientFacade;
+import com.sys.facades.LoginManager;
+
+/**
+ * Logs customer {@link #CUSTOMER_ID} in {@link #REQUESTS} times, as a front end without sessions would for every action,
+ * then opens one session and resolves its token {@link #REQUESTS} times, and prints the time of each.</br>
+ * Passes when every resolve returns the session's facade and the token stops resolving after log-out.
+ * Expects customer {@link #CUSTOMER_ID} in the DB, served by the Derby network server at the pool's URL,
+ * with the Derby client driver on the classpath. {@link SessionExpiryTester} checks expiry and token resolution without a DB.
+ */
+public class SessionManagerTester {
+	static final int CUSTOMER_ID = 1;
+	static final int REQUESTS = 100_000;
+
+	public static void main(String[] args) throws Exception {
+		Customer customer = new CustomerDBDAO(new CouponDBDAO()).read(CUSTOMER_ID);
+		LoginManager loginManager = LoginManager.getInstance();
+		loginManager.warmUp();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < REQUESTS; i++) {
+			loginManager.login(customer.getEmail(), customer.getPassword());
+		}
+		long logins = System.nanoTime() - start;
+
+		String token = loginManager.openSession(customer.getEmail(), customer.getPassword());
+		ClientFacade facade = loginManager.resolve(token);
+		boolean same = true;
+		start = System.nanoTime();
+		for (int i = 0; i < REQUESTS; i++) {
+			same &= loginManager.resolve(token) == facade;
+		}
+		long resolves = System.nanoTime() - start;
+
+		loginManager.logout(token);
+		boolean loggedOut;
+		try {
+			loginManager.resolve(token);
+			loggedOut = false;
+		} catch (CouponSystemException e) {
+			loggedOut = true;
+		}
+
+		System.out.println("login per request : " + logins / REQUESTS + " ns");
+		System.out.println("resolve token     : " + resolves / REQUESTS + " ns");
+		System.out.println("open sessions=" + loginManager.getSessions().getOpenSessions());
+		System.out.println(same && loggedOut ? "PASSED" : "FAILED");
+
+		ConnectionPool.getInstance().closeAllConnections();
+	}
+
+}
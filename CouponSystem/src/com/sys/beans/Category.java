@@ -1,6 +1,10 @@
 //Ok
 
 package com.sys.beans;
+
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 
  * ENUM for Coupon Category.
@@ -21,4 +25,27 @@ MUSIC,
 SPA,
 COMPUTER,
 AUTOMOBILE;
+
+private static final Map<String, Category> byName = new HashMap<>();
+static {
+	for (Category category : values()) {
+		byName.put(category.name(), category);
+	}
+}
+
+/**
+ * {@code of}</br></br>
+ * Same as {@code valueOf}, from a table built once, and {@code null} for a {@code null} name.
+ * @throws IllegalArgumentException if no category has this name.
+ */
+public static Category of(String name) {
+	if (name == null) {
+		return null;
+	}
+	Category result = byName.get(name);
+	if (result == null) {
+		throw new IllegalArgumentException("No category " + name);
+	}
+	return result;
+}
 }
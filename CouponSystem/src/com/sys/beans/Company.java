@@ -4,6 +4,8 @@ package com.sys.beans;
 
 import java.util.ArrayList;
 import java.util.List;
+
+import com.sys.exception.CouponSystemException;
 /**
  * 
  * Company javabean class.<br>
@@ -16,6 +18,8 @@ public class Company {
 private int id;
 private String name,password,email;
 private List<Coupon> coupons = new ArrayList<>();
+private CouponLoader couponLoader;
+private int version;
 public Company() {
 	super();
 	// 
@@ -23,6 +27,16 @@ public Company() {
 public int getId() {
 	return id;
 }
+/**
+ * {@code getVersion}</br></br>
+ * @return the row's version when it was read; {@code update} succeeds only if the row still has this version.
+ */
+public int getVersion() {
+	return version;
+}
+public void setVersion(int version) {
+	this.version = version;
+}
 public void setId(int id) {
 	this.id = id;
 }
@@ -44,11 +58,40 @@ public String getEmail() {
 public void setEmail(String email) {
 	this.email = email;
 }
+/**
+ * {@code getCoupons}</br></br>
+ * If the coupons were not read with the rest of the bean, reads them now, once.
+ * @throws IllegalStateException if reading the coupons fails.
+ */
 public List<Coupon> getCoupons() {
+	if (couponLoader != null) {
+		try {
+			coupons = couponLoader.load();
+		} catch (CouponSystemException e) {
+			throw new IllegalStateException("error in loading coupons of " + getClass().getSimpleName() + " " + id, e);
+		}
+		couponLoader = null;
+	}
 	return coupons;
 }
 public void setCoupons(List<Coupon> coupons) {
 	this.coupons = coupons;
+	this.couponLoader = null;
+}
+/**
+ * {@code setCouponLoader}</br></br>
+ * Defers reading the coupons to the first call of {@link #getCoupons() getCoupons}.
+ */
+public void setCouponLoader(CouponLoader couponLoader) {
+	this.couponLoader = couponLoader;
+	this.coupons = null;
+}
+/**
+ * {@code isCouponsLoaded}</br></br>
+ * @return {@code false} while the coupons wait for the first {@link #getCoupons() getCoupons}.
+ */
+public boolean isCouponsLoaded() {
+	return couponLoader == null;
 }
 public Company(int id, String compName, String password, String email, List<Coupon> coupons) {
 	super();
@@ -65,7 +108,7 @@ public Company(int id) {
 @Override
 public String toString() {
 	return "Company [id=" + id + ", compName=" + name + ", password=" + password + ", email=" + email + ", coupons="
-			+ coupons + "]";
+			+ (isCouponsLoaded() ? coupons : "not loaded") + ", version=" + version + "]";
 }
 @Override
 public int hashCode() {
@@ -89,10 +132,10 @@ public boolean equals(Object obj) {
 }
 
 public void addCoupon(Coupon coupon) {
-	coupons.add(coupon);
+	getCoupons().add(coupon);
 }
 public void removeCoupon(Coupon coupon) {
-	coupons.remove(coupon);
+	getCoupons().remove(coupon);
 }
 
 }
@@ -31,6 +31,7 @@ public class Coupon {
 	private double price;
 	private Date startDate, endDate;
 	private String image;
+	private int version;
 
 	@Override
 	public int hashCode() {
@@ -59,7 +60,19 @@ public class Coupon {
 	public String toString() {
 		return "Coupon [id=" + id + ", companyId=" + companyId + ", amount=" + amount + ", title=" + title
 				+ ", description=" + description + ", category=" + category + ", price=" + price + ", startDate="
-				+ startDate + ", endDate=" + endDate + ", image=" + image + "]";
+				+ startDate + ", endDate=" + endDate + ", image=" + image + ", version=" + version + "]";
+	}
+
+	/**
+	 * {@code getVersion}</br></br>
+	 * @return the row's version when it was read; {@code update} succeeds only if the row still has this version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	public void setVersion(int version) {
+		this.version = version;
 	}
 
 	public int getId() {
@@ -161,6 +174,20 @@ public class Coupon {
 		this.id = id;
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param other - the coupon to copy; its dates are copied too, so the two coupons share no mutable state.
+	 */
+	public Coupon(Coupon other) {
+		this(other.id, other.companyId, other.categoryId, other.amount, other.title, other.description, other.category,
+				other.price, copyOf(other.startDate), copyOf(other.endDate), other.image);
+		this.version = other.version;
+	}
+
+	private static Date copyOf(Date date) {
+		return date == null ? null : (Date) date.clone();
+	}
+
 	public Coupon(int id, int companyId, int categoryId, int amount, String title, String description,
 			Category category, double price, Date startDate, Date endDate, String image) {
 		super();
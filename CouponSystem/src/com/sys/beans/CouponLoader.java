@@ -0,0 +1,23 @@
+package com.sys.beans;
+
+import java.util.List;
+
+import com.sys.exception.CouponSystemException;
+
+/**
+ * {@code CouponLoader}</br></br>
+ * Reads the coupons of a {@link Company} or {@link Customer} the first time {@code getCoupons} is called.
+ * Set by the DAOs when the bean is read without its coupons.
+ *
+ */
+@FunctionalInterface
+public interface CouponLoader {
+
+	/**
+	 * {@code load}</br></br>
+	 * @return the coupons of the bean, in a list the bean may modify.
+	 * @throws CouponSystemException
+	 */
+	List<Coupon> load() throws CouponSystemException;
+
+}
@@ -3,6 +3,8 @@ package com.sys.beans;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.sys.exception.CouponSystemException;
+
 /**
  * 
  * Customer javabean class.<br>
@@ -17,6 +19,8 @@ public class Customer {
 	private int id;
 	private String firstName,lastName, password,email;
 	private List<Coupon> coupons = new ArrayList<>();
+	private CouponLoader couponLoader;
+	private int version;
 	
 	public String getFirstName() {
 		return firstName;
@@ -74,6 +78,18 @@ public class Customer {
 		return id;
 	}
 
+	/**
+	 * {@code getVersion}</br></br>
+	 * @return the row's version when it was read; {@code update} succeeds only if the row still has this version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
 	public void setId(int id) {
 		this.id = id;
 	}
@@ -85,26 +101,57 @@ public class Customer {
 		this.password = password;
 	}
 
+	/**
+	 * {@code getCoupons}</br></br>
+	 * If the coupons were not read with the rest of the bean, reads them now, once.
+	 * @throws IllegalStateException if reading the coupons fails.
+	 */
 	public List<Coupon> getCoupons() {
+		if (couponLoader != null) {
+			try {
+				coupons = couponLoader.load();
+			} catch (CouponSystemException e) {
+				throw new IllegalStateException("error in loading coupons of " + getClass().getSimpleName() + " " + id, e);
+			}
+			couponLoader = null;
+		}
 		return coupons;
 	}
 
 	public void setCoupons(List<Coupon> coupons) {
 		this.coupons = coupons;
+		this.couponLoader = null;
+	}
+
+	/**
+	 * {@code setCouponLoader}</br></br>
+	 * Defers reading the coupons to the first call of {@link #getCoupons() getCoupons}.
+	 */
+	public void setCouponLoader(CouponLoader couponLoader) {
+		this.couponLoader = couponLoader;
+		this.coupons = null;
+	}
+
+	/**
+	 * {@code isCouponsLoaded}</br></br>
+	 * @return {@code false} while the coupons wait for the first {@link #getCoupons() getCoupons}.
+	 */
+	public boolean isCouponsLoaded() {
+		return couponLoader == null;
 	}
 
 	
 	@Override
 	public String toString() {
 		return "Customer [id=" + id + ", firstName=" + firstName + ", lastName=" + lastName + ", password=" + password
-				+ ", email=" + email + ", coupons=" + coupons + "]";
+				+ ", email=" + email + ", coupons=" + (isCouponsLoaded() ? coupons : "not loaded") + ", version=" + version + "]";
 	}
 
 	public void addCoupon(Coupon coupon) {
-		coupons.add(coupon);
+		getCoupons().add(coupon);
 	}
 	public void removeCoupon(Coupon coupon) {
-		coupons.remove(coupon);
+		getCoupons().remove(coupon);
 	}
 
 	@Override
@@ -1,121 +1,623 @@
 package com.sys.connection;
 
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.HashSet;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.database.utils.DbExceptionHandler;
 import com.sys.exception.ConnectionException;
 
 /**
  * {@code ConnectionPool}</br></br>
- * Singleton class that creates a connection pool to use throughout the coupon system.
+ * Singleton class that creates a connection pool to use throughout the coupon system.</br>
+ * Idle connections are kept in a lock-free stack, and access to the pool is guarded by a fair
+ * {@code Semaphore} holding one permit per connection slot, so borrowers are served in arrival order
+ * and never park on the pool's monitor.</br></br>
+ * The pool is elastic: it opens {@link PoolConfiguration#getMinConnections() min} connections on start-up, in parallel and in the background,
+ * opens more on demand up to {@link PoolConfiguration#getMaxConnections() max} when no idle connection is left,
+ * and a background reaper closes connections that stayed idle past the {@link PoolConfiguration#getIdleTimeout() idle timeout}.</br></br>
+ * The reaper also watches borrowed connections: one held longer than the {@link PoolConfiguration#getLeakThreshold() leak threshold},
+ * a minute by default, is logged with the stack of the code that borrowed it. Only if {@link PoolConfiguration#isReclaimLeakedConnections() configured to},
+ * which it is not by default, the reaper also closes it so its slot returns to the pool.
+ * Borrows {@link #exemptFromLeakDetection(Connection) exempted} by their owner, like open cursors and the connection of a {@link UnitOfWork},
+ * which also runs schema migrations, are left alone.</br></br>
+ * Every connection keeps its own {@link StatementCache} of up to {@link PoolConfiguration#getStatementCacheSize() statementCacheSize}
+ * prepared statements, so repeated DAO queries skip Derby's statement compilation.</br></br>
+ * Borrow waits, hold times per borrowing method, and connection counts are published as the MBean {@value #OBJECT_NAME}
+ * and as a {@link PoolMetrics} snapshot from {@link #getMetrics() getMetrics}.
  * @authors Yaniv Chen & Gil Gouetta.
  *
  */
-public class ConnectionPool {
+public class ConnectionPool implements ConnectionPoolMXBean {
 
-	private static final int MAX_CONNECTIONS = 10;
-	private static ConnectionPool instance;
-	private Set<Connection> connections = new HashSet<>();
-	private String url = "jdbc:derby://localhost:1527/CouponSystemDb";
-	private boolean poolIsClosing = false;
+	public static final String OBJECT_NAME = "com.sys.connection:type=ConnectionPool";
+	private static final Lock instanceLock = new ReentrantLock();
+	private static final StackWalker stackWalker = StackWalker.getInstance();
+	private static PoolConfiguration configuration = new PoolConfiguration();
+	private static volatile ConnectionPool instance;
+	private final PoolConfiguration config;
+	// most recently restored connection first, so the least used ones age out.
+	private final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+	private final Set<PooledConnection> open = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger openCount = new AtomicInteger();
+	private final AtomicInteger inUseCount = new AtomicInteger();
+	private final AtomicLong leakedCount = new AtomicLong();
+	private final AtomicLong reclaimedCount = new AtomicLong();
+	private final LongAdder statementCacheHits = new LongAdder();
+	private final LongAdder statementCacheMisses = new LongAdder();
+	private final LongAdder saturatedBorrows = new LongAdder();
+	private final LongAdder timedOutBorrows = new LongAdder();
+	private final Histogram borrowWait = new Histogram();
+	private final Map<String, Histogram> holdTimeByCaller = new ConcurrentHashMap<>();
+	private final Semaphore available;
+	private final ScheduledExecutorService reaper;
+	// connections still being opened by the warm-up; empty once it is over.
+	private final List<CompletableFuture<PooledConnection>> warmUp = new CopyOnWriteArrayList<>();
+	private volatile boolean poolIsClosing = false;
 
 /**
- * Private constructor for the singleton class {@code ConnectionPool} that creaes a dedicated number of connections.	
+ * Private constructor for the singleton class {@code ConnectionPool} that opens the configured minimum of connections.</br>
+ * The connections are opened in parallel; unless {@link PoolConfiguration#isBackgroundWarmUp() backgroundWarmUp} is off,
+ * the constructor returns without waiting for them.
  * @throws ConnectionException
  */
-	
-	private ConnectionPool() throws ConnectionException {
-		// add 10 connections to the set.
-		while (connections.size() < MAX_CONNECTIONS) {
-			try {
-				for (int i = 0; i < MAX_CONNECTIONS; i++) {
-					connections.add(DriverManager.getConnection(url));
-				}
-			}
 
-			catch (SQLException e) {
-				throw new ConnectionException("Sql exception caused by Connection pool",e);
+	private ConnectionPool(PoolConfiguration config) throws ConnectionException {
+		config.validate();
+		this.config = config;
+		available = new Semaphore(config.getMaxConnections(), true);
+		warmUp();
+		reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "connection-pool-reaper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = config.getReaperInterval().toMillis();
+		reaper.scheduleWithFixedDelay(this::evictIdleConnections, interval, interval, TimeUnit.MILLISECONDS);
+		if (config.getLeakThreshold() != null) {
+			long leakInterval = Math.max(1, config.getLeakThreshold().toMillis() / 2);
+			reaper.scheduleWithFixedDelay(this::detectLeakedConnections, leakInterval, leakInterval, TimeUnit.MILLISECONDS);
+		}
+		registerMBean();
+	}
+
+/**
+ * {@code configure}</br></br>
+ * Sets the sizing of the pool. Has to be called before the first {@link #getInstance() getInstance}.
+ * @param configuration - the pool settings.
+ * @throws ConnectionException if the pool was already created or the settings are invalid.
+ */
+
+	public static void configure(PoolConfiguration configuration) throws ConnectionException {
+		configuration.validate();
+		instanceLock.lock();
+		try {
+			if (instance != null) {
+				throw new ConnectionException("Pool was already created with " + ConnectionPool.configuration);
 			}
+			ConnectionPool.configuration = configuration;
+		} finally {
+			instanceLock.unlock();
 		}
 	}
 
 /**
  * {@code getInstance}</br></br>
- * Used to return a connection instance to use for DAO objects.
+ * Used to return a connection instance to use for DAO objects.</br>
+ * Thread-safe: concurrent first callers all get the same pool.
  * @return One instance of {@code ConnectionPool}.
  * @throws ConnectionException
  */
-	
+
 	public static ConnectionPool getInstance() throws ConnectionException {
-		while (instance == null) {
-				instance = new ConnectionPool();
+		ConnectionPool result = instance;
+		if (result == null) {
+			instanceLock.lock();
+			try {
+				result = instance;
+				if (result == null) {
+					result = new ConnectionPool(configuration);
+					instance = result;
+				}
+			} finally {
+				instanceLock.unlock();
+			}
 		}
-		return instance;
+		return result;
 	}
 
 /**
  * {@code closeAllConnections}</br></br>
  * Closes all connections to the DB.</br>
+ * Waits for every borrowed connection to be restored before closing it.</br>
  * Used on system shut-down.
  * @throws ConnectionException
  */
 
-	public synchronized void closeAllConnections() throws ConnectionException {
+	public void closeAllConnections() throws ConnectionException {
 		poolIsClosing = true;
-		int numberOfClosedConnections = 0;
-		while (numberOfClosedConnections < MAX_CONNECTIONS) {
+		reaper.shutdownNow();
+		unregisterMBean();
+		try {
+			available.acquire(config.getMaxConnections());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionException("Exception raised in closing all connections", e);
+		}
+		SQLException failure = null;
+		PooledConnection pooled;
+		while ((pooled = idle.poll()) != null) {
 			try {
-				for (Connection connection : connections) {
-					connection.close();
-					numberOfClosedConnections++;
-				}
-
-				connections.clear();
-
-				if (numberOfClosedConnections < MAX_CONNECTIONS) {
-					wait();
-				}
-
-			} catch (SQLException | InterruptedException e) {
-				throw new ConnectionException("Exception raised in closing all connections", e);
+				closeConnection(pooled);
+			} catch (SQLException e) {
+				failure = e;
 			}
 		}
+		if (failure != null) {
+			throw new ConnectionException("Exception raised in closing all connections", failure);
+		}
 	}
 
 /**
  * {@code restoreConnection}</br></br>
- * Returns a {@code connection} to the pool.</br>	
+ * Returns a {@code connection} to the pool and hands its slot to the longest waiting borrower, if any.</br>
+ * The {@code connection} can no longer be used; the next borrower gets another one.
  * @param connection
  */
-	public synchronized void restoreConnection(Connection connection) {
-		connections.add(connection);
-		notify();
+	public void restoreConnection(Connection connection) {
+		if (connection == null) {
+			return;
+		}
+		PooledConnection pooled = PooledConnection.of(connection);
+		// unknown, already restored, or reclaimed as leaked: the slot was given back already.
+		if (pooled == null || !pooled.markIdle(connection)) {
+			return;
+		}
+		inUseCount.decrementAndGet();
+		recordHoldTime(pooled);
+		idle.push(pooled);
+		available.release();
 	}
 
 /**
- * {@code getConnection}</br></br>	
- * Used to get one DB {@code connection} instance.
+ * {@code getConnection}</br></br>
+ * Used to get one DB {@code connection} instance.</br>
+ * Waits as long as it takes for a connection slot to be free.
  * @return {@code connection} instance.
  * @throws ConnectionException
  */
-	public synchronized Connection getConnection() throws ConnectionException {
+	public Connection getConnection() throws ConnectionException {
+		checkNotClosing();
+		long start = System.nanoTime();
+		try {
+			// timed, unlike tryAcquire(), so the probe queues behind waiters on the fair semaphore instead of barging.
+			if (!available.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+				saturatedBorrows.increment();
+				available.acquire();
+			}
+			borrowWait.record(System.nanoTime() - start);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionException("Thread interrupted while getting a connection", e);
+		}
+		return takeConnection();
+	}
+
+/**
+ * {@code getConnection}</br></br>
+ * Used to get one DB {@code connection} instance, waiting no longer than {@code timeout}.
+ * @param timeout - the maximum time to wait for a connection slot to be free.
+ * @return {@code connection} instance.
+ * @throws ConnectionException if no connection became available in time.
+ */
+	public Connection getConnection(Duration timeout) throws ConnectionException {
+		checkNotClosing();
+		long start = System.nanoTime();
+		try {
+			if (!available.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+				saturatedBorrows.increment();
+				if (!available.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+					timedOutBorrows.increment();
+					throw new ConnectionException("Timed out after " + timeout.toMillis() + "ms while getting a connection");
+				}
+			}
+			borrowWait.record(System.nanoTime() - start);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionException("Thread interrupted while getting a connection", e);
+		}
+		return takeConnection();
+	}
+
+/**
+ * {@code exemptFromLeakDetection}</br></br>
+ * Marks a borrowed {@code connection} as held on purpose for long, e.g. under a cursor read at a subscriber's pace,
+ * so the leak threshold neither reports nor reclaims it. The mark lasts until the connection is restored.
+ * Does nothing if the connection is not borrowed from the pool.
+ * @param connection
+ */
+	public static void exemptFromLeakDetection(Connection connection) {
+		ConnectionPool pool = instance;
+		PooledConnection pooled = pool == null ? null : PooledConnection.of(connection);
+		if (pooled != null && pooled.isBorrowed()) {
+			pooled.setLeakExempt(true);
+		}
+	}
+
+/**
+ * {@code getMetrics}</br></br>
+ * @return a snapshot of the pool's counters and histograms.
+ */
+	public PoolMetrics getMetrics() {
+		Map<String, Histogram.Snapshot> holdTimes = new TreeMap<>();
+		for (Map.Entry<String, Histogram> entry : holdTimeByCaller.entrySet()) {
+			holdTimes.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return new PoolMetrics(getMaxConnections(), getOpenConnections(), getIdleConnections(), getInUseConnections(),
+				getWaitingThreads(), getSaturatedBorrows(), getTimedOutBorrows(), getLeakedConnections(),
+				getReclaimedConnections(), getStatementCacheHits(), getStatementCacheMisses(), borrowWait.snapshot(),
+				holdTimes);
+	}
+
+	@Override
+	public int getMaxConnections() {
+		return config.getMaxConnections();
+	}
+
+	@Override
+	public int getWaitingThreads() {
+		return available.getQueueLength();
+	}
+
+	@Override
+	public double getUtilization() {
+		return (double) getInUseConnections() / getMaxConnections();
+	}
+
+	@Override
+	public long getSaturatedBorrows() {
+		return saturatedBorrows.sum();
+	}
+
+	@Override
+	public long getTimedOutBorrows() {
+		return timedOutBorrows.sum();
+	}
+
+	@Override
+	public double getBorrowWaitMeanMillis() {
+		return borrowWait.snapshot().getMeanMillis();
+	}
+
+	@Override
+	public double getBorrowWaitP50Millis() {
+		return borrowWait.snapshot().getPercentileMillis(50);
+	}
+
+	@Override
+	public double getBorrowWaitP99Millis() {
+		return borrowWait.snapshot().getPercentileMillis(99);
+	}
+
+	@Override
+	public double getBorrowWaitMaxMillis() {
+		return borrowWait.snapshot().getMaxMillis();
+	}
+
+	@Override
+	public Map<String, Double> getHoldTimeMeanMillisByCaller() {
+		Map<String, Double> result = new TreeMap<>();
+		for (Map.Entry<String, Histogram> entry : holdTimeByCaller.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().snapshot().getMeanMillis());
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Double> getHoldTimeP99MillisByCaller() {
+		Map<String, Double> result = new TreeMap<>();
+		for (Map.Entry<String, Histogram> entry : holdTimeByCaller.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().snapshot().getPercentileMillis(99));
+		}
+		return result;
+	}
+
+/**
+ * @return number of physical connections currently open, borrowed or idle.
+ */
+	@Override
+	public int getOpenConnections() {
+		return openCount.get();
+	}
+
+/**
+ * @return number of open connections waiting in the pool.
+ */
+	@Override
+	public int getIdleConnections() {
+		return idle.size();
+	}
+
+/**
+ * @return number of connections currently borrowed.
+ */
+	@Override
+	public int getInUseConnections() {
+		return inUseCount.get();
+	}
+
+/**
+ * @return number of borrowed connections that were held past the leak threshold since start-up.
+ */
+	@Override
+	public long getLeakedConnections() {
+		return leakedCount.get();
+	}
+
+/**
+ * @return number of leaked connections that were closed and whose slot was given back to the pool.
+ */
+	@Override
+	public long getReclaimedConnections() {
+		return reclaimedCount.get();
+	}
+
+/**
+ * @return number of {@code prepareStatement} calls served from a connection's statement cache.
+ */
+	@Override
+	public long getStatementCacheHits() {
+		return statementCacheHits.sum();
+	}
+
+/**
+ * @return number of {@code prepareStatement} calls that had to compile a new statement.
+ */
+	@Override
+	public long getStatementCacheMisses() {
+		return statementCacheMisses.sum();
+	}
+
+	private void checkNotClosing() throws ConnectionException {
 		if (poolIsClosing) {
 			throw new ConnectionException("Pool is closing");
 		}
-		while (connections.isEmpty()) {
+	}
+
+	/**
+	 * Called while holding a slot permit: reuses an idle connection, or grows the pool by one.
+	 */
+	private Connection takeConnection() throws ConnectionException {
+		if (poolIsClosing) {
+			available.release();
+			throw new ConnectionException("Pool is closing");
+		}
+		PooledConnection pooled;
+		try {
+			pooled = idle.poll();
+			if (pooled == null) {
+				pooled = awaitWarmUp();
+			}
+			if (pooled == null) {
+				pooled = openConnection();
+			}
+		} catch (ConnectionException e) {
+			available.release();
+			throw e;
+		}
+		pooled.markBorrowed(config.getLeakThreshold() != null, config.isRecordHoldTimeByCaller() ? findCaller() : null);
+		inUseCount.incrementAndGet();
+		return pooled.getConnection();
+	}
+
+	/**
+	 * @return the DAO or facade method asking for a connection, as {@code ClassName.method}.
+	 */
+	private static String findCaller() {
+		return stackWalker.walk(frames -> frames
+				.filter(frame -> !frame.getClassName().startsWith("com.sys.connection.")
+						&& !frame.getMethodName().equals("connect"))
+				.findFirst()
+				.map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1) + "."
+						+ frame.getMethodName())
+				.orElse("unknown"));
+	}
+
+	private void recordHoldTime(PooledConnection pooled) {
+		String caller = pooled.getCaller();
+		if (caller != null) {
+			holdTimeByCaller.computeIfAbsent(caller, key -> new Histogram())
+					.record(System.nanoTime() - pooled.getBorrowedAt());
+		}
+	}
+
+	private void registerMBean() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			DbExceptionHandler.HandleException(e);
+		}
+	}
+
+	private void unregisterMBean() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			DbExceptionHandler.HandleException(e);
+		}
+	}
+
+	/**
+	 * Opens the configured minimum of connections in parallel, each one going idle as soon as it is ready.
+	 */
+	private void warmUp() throws ConnectionException {
+		int connections = config.getMinConnections();
+		if (connections == 0) {
+			return;
+		}
+		ExecutorService opener = Executors.newFixedThreadPool(Math.min(connections, config.getWarmUpThreads()), runnable -> {
+			Thread thread = new Thread(runnable, "connection-pool-warm-up");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (int i = 0; i < connections; i++) {
+			CompletableFuture<PooledConnection> opening = new CompletableFuture<>();
+			warmUp.add(opening);
+			opener.execute(() -> {
+				try {
+					PooledConnection pooled = openConnection();
+					idle.push(pooled);
+					opening.complete(pooled);
+				} catch (ConnectionException e) {
+					DbExceptionHandler.HandleException(e);
+					opening.completeExceptionally(e);
+				} finally {
+					warmUp.remove(opening);
+				}
+			});
+		}
+		opener.shutdown();
+		if (!config.isBackgroundWarmUp()) {
 			try {
-				wait();
+				CompletableFuture.allOf(warmUp.toArray(new CompletableFuture<?>[0])).join();
+			} catch (CompletionException e) {
+				throw new ConnectionException("Sql exception caused by Connection pool", e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * While the warm-up is still opening connections, waits for the next one to be ready
+	 * rather than opening another.
+	 * @return an idle connection, or {@code null} once the warm-up is over and none is left.
+	 */
+	private PooledConnection awaitWarmUp() throws ConnectionException {
+		PooledConnection pooled = null;
+		while (pooled == null && !warmUp.isEmpty()) {
+			try {
+				CompletableFuture.anyOf(warmUp.toArray(new CompletableFuture<?>[0])).get();
+			} catch (ExecutionException e) {
+				// a failed opening was already logged; wait for the others.
 			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
 				throw new ConnectionException("Thread interrupted while getting a connection", e);
+			}
+			// another borrower may have taken it first.
+			pooled = idle.poll();
+		}
+		// the last opening may have gone idle between the two checks.
+		return pooled != null ? pooled : idle.poll();
+	}
 
+	private PooledConnection openConnection() throws ConnectionException {
+		try {
+			Connection physicalConnection = DriverManager.getConnection(config.getUrl());
+			StatementCache statementCache = new StatementCache(physicalConnection, config.getStatementCacheSize(),
+					statementCacheHits, statementCacheMisses);
+			PooledConnection pooled = new PooledConnection(this, physicalConnection, statementCache);
+			open.add(pooled);
+			openCount.incrementAndGet();
+			return pooled;
+		} catch (SQLException e) {
+			throw new ConnectionException("Sql exception caused by Connection pool", e);
+		}
+	}
+
+	private void closeConnection(PooledConnection pooled) throws SQLException {
+		open.remove(pooled);
+		openCount.decrementAndGet();
+		pooled.closePhysicalConnection();
+	}
+
+	/**
+	 * Reaper task: closes connections idle past the timeout, oldest first, without going below the minimum.
+	 */
+	private void evictIdleConnections() {
+		long threshold = System.nanoTime() - config.getIdleTimeout().toNanos();
+		Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+		while (oldestFirst.hasNext() && openCount.get() > config.getMinConnections()) {
+			PooledConnection pooled = oldestFirst.next();
+			if (pooled.getIdleSince() - threshold > 0) {
+				break;
+			}
+			// a borrower may have taken it meanwhile; only the thread that removes it may close it.
+			if (idle.removeFirstOccurrence(pooled)) {
+				try {
+					closeConnection(pooled);
+				} catch (SQLException e) {
+					DbExceptionHandler.HandleException(e);
+				}
 			}
 		}
-		Connection result = connections.iterator().next();
-		connections.remove(result);
-		return result;
+	}
+
+	/**
+	 * Reaper task: reports connections borrowed for longer than the leak threshold, and reclaims them if configured to.
+	 */
+	private void detectLeakedConnections() {
+		long threshold = System.nanoTime() - config.getLeakThreshold().toNanos();
+		for (PooledConnection pooled : open) {
+			if (!pooled.isBorrowed() || pooled.isLeakReported() || pooled.isLeakExempt() || pooled.getBorrowedAt() - threshold > 0) {
+				continue;
+			}
+			if (!config.isReclaimLeakedConnections()) {
+				pooled.setLeakReported(true);
+				leakedCount.incrementAndGet();
+				reportLeak(pooled, "Connection leaked");
+				continue;
+			}
+			// the borrower may restore it concurrently; only one side wins.
+			if (pooled.markReclaimed()) {
+				leakedCount.incrementAndGet();
+				reclaimedCount.incrementAndGet();
+				inUseCount.decrementAndGet();
+				try {
+					reportLeak(pooled, "Connection leaked and reclaimed");
+					open.remove(pooled);
+					openCount.decrementAndGet();
+					// the borrower may still be using the statement cache; closing the connection closes its statements.
+					pooled.closeReclaimedConnection();
+				} catch (SQLException | RuntimeException e) {
+					// a failure must neither lose the slot nor escape and cancel this task.
+					DbExceptionHandler.HandleException(e);
+				} finally {
+					available.release();
+				}
+			}
+		}
+	}
+
+	private void reportLeak(PooledConnection pooled, String message) {
+		long heldMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pooled.getBorrowedAt());
+		DbExceptionHandler.HandleException(
+				new ConnectionException(message + " after " + heldMillis + "ms", pooled.getBorrower(), pooled.getConnection()));
 	}
 
 }
@@ -0,0 +1,67 @@
+package com.sys.connection;
+
+import java.util.Map;
+
+/**
+ * {@code ConnectionPoolMXBean}</br></br>
+ * Management interface the {@link ConnectionPool} publishes as {@value ConnectionPool#OBJECT_NAME}.</br>
+ * Times are in milliseconds. For the same data as plain Java objects, use {@link ConnectionPool#getMetrics() getMetrics}.
+ *
+ */
+public interface ConnectionPoolMXBean {
+
+	int getMaxConnections();
+
+	int getOpenConnections();
+
+	int getIdleConnections();
+
+	/**
+	 * @return number of connections currently borrowed.
+	 */
+	int getInUseConnections();
+
+	/**
+	 * @return number of threads waiting for a connection right now.
+	 */
+	int getWaitingThreads();
+
+	/**
+	 * @return borrowed connections as a fraction of the maximum pool size.
+	 */
+	double getUtilization();
+
+	/**
+	 * @return number of borrows that found every connection slot taken and had to wait.
+	 */
+	long getSaturatedBorrows();
+
+	long getTimedOutBorrows();
+
+	long getLeakedConnections();
+
+	long getReclaimedConnections();
+
+	long getStatementCacheHits();
+
+	long getStatementCacheMisses();
+
+	double getBorrowWaitMeanMillis();
+
+	double getBorrowWaitP50Millis();
+
+	double getBorrowWaitP99Millis();
+
+	double getBorrowWaitMaxMillis();
+
+	/**
+	 * @return mean time a connection was held, by the DAO or facade method that borrowed it.
+	 */
+	Map<String, Double> getHoldTimeMeanMillisByCaller();
+
+	/**
+	 * @return 99th percentile of the time a connection was held, by the DAO or facade method that borrowed it.
+	 */
+	Map<String, Double> getHoldTimeP99MillisByCaller();
+
+}
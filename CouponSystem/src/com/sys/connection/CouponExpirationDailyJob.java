@@ -2,13 +2,11 @@ package com.sys.connection;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.util.Date;
-import java.util.List;
 
 import com.database.utils.DbExceptionHandler;
-import com.sys.beans.Coupon;
 import com.sys.dao.CouponDBDAO;
+import com.sys.dao.ExpirationReport;
 import com.sys.exception.CouponSystemException;
 
 /**
@@ -22,28 +20,38 @@ import com.sys.exception.CouponSystemException;
 
 public class CouponExpirationDailyJob implements Runnable {
 
-	private boolean quit = false;
-	private CouponDBDAO dao = new CouponDBDAO();
+	private static final int CHUNK_SIZE = 1000;
+
+	private volatile boolean quit = false;
+	private final CouponDBDAO dao;
 	private final long sleepTime = 86400000;
-	private List<Coupon> expiredCoupons;
+	private volatile ExpirationReport lastReport;
+
+	public CouponExpirationDailyJob() {
+		this(new CouponDBDAO());
+	}
+
+/**
+ * @param dao - the DAO to delete with; pass the one the facades share, so its caches drop the expired coupons too.
+ */
+	public CouponExpirationDailyJob(CouponDBDAO dao) {
+		this.dao = dao;
+	}
 
 	
 /**
  * 
  * Implements {@code runnable} method {@code run()}.</br>
- * This Daily job is affectively running everyday while the system is up.
+ * This Daily job is affectively running everyday while the system is up.</br>
+ * Every run deletes the coupons that ended before today, and their purchase history,
+ * with {@link CouponDBDAO#deleteExpired(Date, int) deleteExpired}: set-based deletes in chunks of {@value #CHUNK_SIZE} coupons per transaction.
  * 
  */
 	@Override
 	public void run() {
 		while (!quit) {
 			try {
-				expiredCoupons = (List<Coupon>) dao.readAll();
-				removeUnexpiredCouponsFromList();
-				removeExpiredCouponsFromDB();
-				if (allCouponsWereDeleted()) {
-					expiredCoupons.clear();
-				}
+				lastReport = dao.deleteExpired(startOfToday(), CHUNK_SIZE);
 				
 				Thread.sleep(sleepTime);
 			} catch (CouponSystemException | InterruptedException e) {
@@ -55,59 +63,21 @@ public class CouponExpirationDailyJob implements Runnable {
 	}
 
 /**
- * 
- * {@code removeExpiredCouponsFromDB}</br></br>
- * Removes expired coupons from the DB.</br>
- * Iterates through all coupons in the list, pulled from the DB, </br>
- * and "cleaned" using {@link #removeUnexpiredCouponsFromList() removeUnexpiredCouponsFromList} and deletes all of them.
- * 
- * @throws CouponSystemException
+ * {@code getLastReport}</br></br>
+ * @return what the latest run deleted and how long it took, or {@code null} before the first run.
  */
-	
-	private void removeExpiredCouponsFromDB() throws CouponSystemException {
-		for (Coupon expiredCoupon : expiredCoupons) {
-				dao.delete(expiredCoupon.getId());
-		}
+	public ExpirationReport getLastReport() {
+		return lastReport;
 	}
 
-/**
- * {@code allCouponsWereDeleted}</br></br>
- * Checks if all expired coupons were deleted.	
- * 
- * @return True if the list of coupons to delete is empty, False otherwise.
- * @throws CouponSystemException
- */
-
-	private boolean allCouponsWereDeleted() throws CouponSystemException {
-
-		for (Coupon expiredCoupon : expiredCoupons) {
-				if (dao.read(expiredCoupon.getId()) != null) {
-					return false;
-			}
-		}
-
-		return true;
+	private Date startOfToday() {
+		return Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant());
 	}
 
-/**
- * {@code removeUnexpiredCouponsFromList}</br></br>
- * Iterates through the list of coupons, pulled from the DB,</br>
- * and removes the ones that haven't expired.
- * 
- */
-	
-	private void removeUnexpiredCouponsFromList() {
-		ZonedDateTime today = LocalDate.now().atStartOfDay(ZoneId.systemDefault());
-		for (int i = 0; i < expiredCoupons.size(); i++) {
-			if (expiredCoupons.get(i).getEndDate().before(Date.from(today.toInstant()))) {
-				expiredCoupons.remove(i--);
-			}
-		}
-	}
 /**
  * {@code stop}</br></br>
- * Stops the thread. Sets {@code quit} to true. 
- * 
+ * Stops the thread. Sets {@code quit} to true.
+ *
  */
 	public void stop() {
 		quit = true;
@@ -0,0 +1,153 @@
+package com.sys.connection;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sys.exception.ConnectionException;
+import com.sys.exception.CouponSystemException;
+
+/**
+ * {@code DbExecutor}</br></br>
+ * Singleton executor for DB calls made asynchronously, e.g. by the {@code AsyncDAO} adapters.</br>
+ * It has one thread per connection of the {@link ConnectionPool} at its {@link ConnectionPool#getMaxConnections() maximum size},
+ * so independent calls run in parallel without queueing on the pool's semaphore,
+ * and a bounded queue of {@value #QUEUE_PER_THREAD} calls per thread: a call submitted when the queue is full fails
+ * with a {@link CouponSystemException} instead of piling up.</br>
+ * Calls run on the executor's threads, outside the caller's {@link UnitOfWork}.</br></br>
+ * Cursors that keep a connection between calls, like a {@code CursorPublisher}'s, must {@link #tryOpenCursor() take a cursor permit}:
+ * there is one less than there are threads, so open cursors never hold every connection while the calls that would
+ * read and close them wait for one.
+ *
+ */
+public class DbExecutor {
+
+	/**
+	 * A blocking DB call.
+	 */
+	@FunctionalInterface
+	public interface DbCall<R> {
+		R call() throws CouponSystemException;
+	}
+
+	static final int QUEUE_PER_THREAD = 64;
+	private static final Lock instanceLock = new ReentrantLock();
+	private static volatile DbExecutor instance;
+
+	private final ThreadPoolExecutor executor;
+	private final Semaphore cursors;
+
+	private DbExecutor(int threads) {
+		AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), runnable -> {
+					Thread thread = new Thread(runnable, "db-executor-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		cursors = new Semaphore(Math.max(1, threads - 1));
+	}
+
+/**
+ * {@code getInstance}</br></br>
+ * Thread-safe: concurrent first callers all get the same executor.
+ * @return One instance of {@code DbExecutor}, sized to the connection pool.
+ * @throws ConnectionException if the connection pool can't be created.
+ */
+
+	public static DbExecutor getInstance() throws ConnectionException {
+		DbExecutor result = instance;
+		if (result == null) {
+			instanceLock.lock();
+			try {
+				result = instance;
+				if (result == null) {
+					result = new DbExecutor(ConnectionPool.getInstance().getMaxConnections());
+					instance = result;
+				}
+			} finally {
+				instanceLock.unlock();
+			}
+		}
+		return result;
+	}
+
+/**
+ * {@code submit}</br></br>
+ * Runs one DB call on the executor.
+ * @param call - the call, e.g. {@code () -> couponDao.read(id)}.
+ * @return a future completed with the call's result, or exceptionally with the exception it threw,
+ * or with a {@link CouponSystemException} if the queue was full.
+ */
+
+	public <R> CompletableFuture<R> submit(DbCall<R> call) {
+		CompletableFuture<R> result = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				if (result.isDone()) {
+					// cancelled while queued.
+					return;
+				}
+				try {
+					result.complete(call.call());
+				} catch (CouponSystemException | RuntimeException e) {
+					result.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			result.completeExceptionally(new CouponSystemException("DB executor is saturated or shut down", e));
+		}
+		return result;
+	}
+
+/**
+ * {@code tryOpenCursor}</br></br>
+ * Takes a permit to keep a cursor, and its connection, open across calls. Does not wait.
+ * @return False if as many cursors as allowed are open already.
+ */
+
+	public boolean tryOpenCursor() {
+		return cursors.tryAcquire();
+	}
+
+/**
+ * {@code closeCursor}</br></br>
+ * Gives back the permit of a cursor that was closed.
+ */
+
+	public void closeCursor() {
+		cursors.release();
+	}
+
+	public int getAvailableCursors() {
+		return cursors.availablePermits();
+	}
+
+	public int getThreads() {
+		return executor.getMaximumPoolSize();
+	}
+
+	public int getQueuedCalls() {
+		return executor.getQueue().size();
+	}
+
+	public int getActiveCalls() {
+		return executor.getActiveCount();
+	}
+
+/**
+ * {@code shutdown}</br></br>
+ * Lets submitted calls finish and refuses new ones. Used on system shut-down.
+ */
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.sys.connection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code Histogram}</br></br>
+ * Lock-free latency histogram with power-of-two microsecond buckets, from under 1&micro;s up to about 35 minutes.</br>
+ * Recording is a couple of {@code LongAdder} increments, so it can sit on the pool's borrow path;
+ * percentiles read from a {@link #snapshot() snapshot} are accurate to the bucket, i.e. within a factor of two.
+ *
+ */
+public class Histogram {
+
+	private static final int BUCKETS = 32;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+	public Histogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * {@code record}</br></br>
+	 * Adds one measurement.
+	 * @param nanos - the measured duration in nanoseconds.
+	 */
+	public void record(long nanos) {
+		long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+		// bucket i holds durations below 2^i microseconds.
+		int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+		buckets[bucket].increment();
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	/**
+	 * {@code snapshot}</br></br>
+	 * @return the current counts, detached from further recording.
+	 */
+	public Snapshot snapshot() {
+		long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+		}
+		return new Snapshot(counts, count.sum(), totalNanos.sum(), maxNanos.get());
+	}
+
+	/**
+	 * {@code Snapshot}</br></br>
+	 * Point-in-time copy of a {@link Histogram}.
+	 */
+	public static class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long totalNanos;
+		private final long maxNanos;
+
+		Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+			this.counts = counts;
+			this.count = count;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMeanMillis() {
+			return count == 0 ? 0 : totalNanos / 1_000_000.0 / count;
+		}
+
+		public double getMaxMillis() {
+			return maxNanos / 1_000_000.0;
+		}
+
+		/**
+		 * @param percentile - between 0 and 100.
+		 * @return the upper bound, in milliseconds, of the bucket holding the given percentile.
+		 */
+		public double getPercentileMillis(double percentile) {
+			if (count == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(count * percentile / 100.0);
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= Math.max(1, rank)) {
+					return Math.min((1L << i) / 1000.0, getMaxMillis());
+				}
+			}
+			return getMaxMillis();
+		}
+
+		/**
+		 * @return count of measurements per bucket; bucket {@code i} holds durations below 2<sup>i</sup> microseconds.
+		 */
+		public long[] getBucketCounts() {
+			return counts.clone();
+		}
+
+		@Override
+		public String toString() {
+			return "[count=" + count + ", mean=" + getMeanMillis() + "ms, p50=" + getPercentileMillis(50) + "ms, p99="
+					+ getPercentileMillis(99) + "ms, max=" + getMaxMillis() + "ms]";
+		}
+	}
+
+}
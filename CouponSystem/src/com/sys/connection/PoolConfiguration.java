@@ -0,0 +1,174 @@
+package com.sys.connection;
+
+import java.time.Duration;
+
+import com.sys.exception.ConnectionException;
+
+/**
+ * {@code PoolConfiguration}</br></br>
+ * Sizing and timing settings for the {@link ConnectionPool}.</br>
+ * Must be handed to {@link ConnectionPool#configure(PoolConfiguration) configure} before the pool is first used.</br></br>
+ * By default a connection borrowed for longer than a minute is only reported as leaked; reclaiming it has to be turned on.
+ *
+ */
+public class PoolConfiguration {
+
+	private String url = "jdbc:derby://localhost:1527/CouponSystemDb";
+	private int minConnections = 2;
+	private int maxConnections = 10;
+	private Duration idleTimeout = Duration.ofMinutes(5);
+	private Duration reaperInterval = Duration.ofSeconds(30);
+	private Duration leakThreshold = Duration.ofMinutes(1);
+	private boolean reclaimLeakedConnections = false;
+	private int statementCacheSize = 32;
+	private boolean backgroundWarmUp = true;
+	private int warmUpThreads = 4;
+	private boolean recordHoldTimeByCaller = true;
+
+	public String getUrl() {
+		return url;
+	}
+
+	public void setUrl(String url) {
+		this.url = url;
+	}
+
+	/**
+	 * @return number of connections opened on start-up, and kept open by the idle reaper.
+	 */
+	public int getMinConnections() {
+		return minConnections;
+	}
+
+	public void setMinConnections(int minConnections) {
+		this.minConnections = minConnections;
+	}
+
+	/**
+	 * @return upper bound for the number of open connections.
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	/**
+	 * @return how long a connection may stay idle before the reaper closes it.
+	 */
+	public Duration getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	public void setIdleTimeout(Duration idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * @return how often the reaper looks for idle connections.
+	 */
+	public Duration getReaperInterval() {
+		return reaperInterval;
+	}
+
+	public void setReaperInterval(Duration reaperInterval) {
+		this.reaperInterval = reaperInterval;
+	}
+
+	/**
+	 * @return how long a connection may stay borrowed before it is reported as leaked,
+	 * or {@code null} to disable leak detection.
+	 */
+	public Duration getLeakThreshold() {
+		return leakThreshold;
+	}
+
+	public void setLeakThreshold(Duration leakThreshold) {
+		this.leakThreshold = leakThreshold;
+	}
+
+	/**
+	 * @return whether a leaked connection is closed and its slot given back to the pool,
+	 * or only reported, which is the default.
+	 * Closing it fails whatever its borrower still does with it, so only borrows with no owner are reclaimed:
+	 * not those of a {@link UnitOfWork}, nor open cursors.
+	 */
+	public boolean isReclaimLeakedConnections() {
+		return reclaimLeakedConnections;
+	}
+
+	public void setReclaimLeakedConnections(boolean reclaimLeakedConnections) {
+		this.reclaimLeakedConnections = reclaimLeakedConnections;
+	}
+
+	/**
+	 * @return how many prepared statements each connection keeps, least recently used evicted first.
+	 * 0 disables statement caching.
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * @return whether the minimum connections are opened in the background, so that creating the pool
+	 * does not wait for them and the first borrower gets the first connection that is ready.
+	 */
+	public boolean isBackgroundWarmUp() {
+		return backgroundWarmUp;
+	}
+
+	public void setBackgroundWarmUp(boolean backgroundWarmUp) {
+		this.backgroundWarmUp = backgroundWarmUp;
+	}
+
+	/**
+	 * @return how many connections the warm-up opens in parallel.
+	 */
+	public int getWarmUpThreads() {
+		return warmUpThreads;
+	}
+
+	public void setWarmUpThreads(int warmUpThreads) {
+		this.warmUpThreads = warmUpThreads;
+	}
+
+	/**
+	 * @return whether the pool looks up the DAO or facade method behind every borrow,
+	 * to report connection hold times per method.
+	 */
+	public boolean isRecordHoldTimeByCaller() {
+		return recordHoldTimeByCaller;
+	}
+
+	public void setRecordHoldTimeByCaller(boolean recordHoldTimeByCaller) {
+		this.recordHoldTimeByCaller = recordHoldTimeByCaller;
+	}
+
+	/**
+	 * {@code validate}</br></br>
+	 * Checks that the bounds make sense together.
+	 * @throws ConnectionException if they don't.
+	 */
+	void validate() throws ConnectionException {
+		if (minConnections < 0 || maxConnections < 1 || minConnections > maxConnections || warmUpThreads < 1) {
+			throw new ConnectionException(
+					"invalid pool bounds: min=" + minConnections + ", max=" + maxConnections + ", warmUpThreads=" + warmUpThreads);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PoolConfiguration [url=" + url + ", minConnections=" + minConnections + ", maxConnections="
+				+ maxConnections + ", idleTimeout=" + idleTimeout + ", reaperInterval=" + reaperInterval + ", leakThreshold=" + leakThreshold
+				+ ", reclaimLeakedConnections=" + reclaimLeakedConnections + ", statementCacheSize=" + statementCacheSize
+				+ ", backgroundWarmUp=" + backgroundWarmUp + ", warmUpThreads=" + warmUpThreads
+				+ ", recordHoldTimeByCaller=" + recordHoldTimeByCaller + "]";
+	}
+
+}
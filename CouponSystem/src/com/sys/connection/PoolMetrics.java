@@ -0,0 +1,119 @@
+package com.sys.connection;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * {@code PoolMetrics}</br></br>
+ * Point-in-time snapshot of the {@link ConnectionPool}'s counters and histograms.
+ *
+ */
+public class PoolMetrics {
+
+	private final int maxConnections;
+	private final int openConnections;
+	private final int idleConnections;
+	private final int inUseConnections;
+	private final int waitingThreads;
+	private final long saturatedBorrows;
+	private final long timedOutBorrows;
+	private final long leakedConnections;
+	private final long reclaimedConnections;
+	private final long statementCacheHits;
+	private final long statementCacheMisses;
+	private final Histogram.Snapshot borrowWait;
+	private final Map<String, Histogram.Snapshot> holdTimeByCaller;
+
+	PoolMetrics(int maxConnections, int openConnections, int idleConnections, int inUseConnections,
+			int waitingThreads, long saturatedBorrows, long timedOutBorrows, long leakedConnections,
+			long reclaimedConnections, long statementCacheHits, long statementCacheMisses,
+			Histogram.Snapshot borrowWait, Map<String, Histogram.Snapshot> holdTimeByCaller) {
+		this.maxConnections = maxConnections;
+		this.openConnections = openConnections;
+		this.idleConnections = idleConnections;
+		this.inUseConnections = inUseConnections;
+		this.waitingThreads = waitingThreads;
+		this.saturatedBorrows = saturatedBorrows;
+		this.timedOutBorrows = timedOutBorrows;
+		this.leakedConnections = leakedConnections;
+		this.reclaimedConnections = reclaimedConnections;
+		this.statementCacheHits = statementCacheHits;
+		this.statementCacheMisses = statementCacheMisses;
+		this.borrowWait = borrowWait;
+		this.holdTimeByCaller = Collections.unmodifiableMap(holdTimeByCaller);
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	public int getOpenConnections() {
+		return openConnections;
+	}
+
+	public int getIdleConnections() {
+		return idleConnections;
+	}
+
+	public int getInUseConnections() {
+		return inUseConnections;
+	}
+
+	public int getWaitingThreads() {
+		return waitingThreads;
+	}
+
+	public double getUtilization() {
+		return (double) inUseConnections / maxConnections;
+	}
+
+	public long getSaturatedBorrows() {
+		return saturatedBorrows;
+	}
+
+	public long getTimedOutBorrows() {
+		return timedOutBorrows;
+	}
+
+	public long getLeakedConnections() {
+		return leakedConnections;
+	}
+
+	public long getReclaimedConnections() {
+		return reclaimedConnections;
+	}
+
+	public long getStatementCacheHits() {
+		return statementCacheHits;
+	}
+
+	public long getStatementCacheMisses() {
+		return statementCacheMisses;
+	}
+
+	/**
+	 * @return time borrowers spent waiting in {@code getConnection}.
+	 */
+	public Histogram.Snapshot getBorrowWait() {
+		return borrowWait;
+	}
+
+	/**
+	 * @return time between borrow and restore, keyed by the method that borrowed, e.g. {@code CouponDBDAO.read}.
+	 */
+	public Map<String, Histogram.Snapshot> getHoldTimeByCaller() {
+		return holdTimeByCaller;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolMetrics [maxConnections=" + maxConnections + ", openConnections=" + openConnections
+				+ ", idleConnections=" + idleConnections + ", inUseConnections=" + inUseConnections
+				+ ", waitingThreads=" + waitingThreads + ", saturatedBorrows=" + saturatedBorrows
+				+ ", timedOutBorrows=" + timedOutBorrows + ", leakedConnections=" + leakedConnections
+				+ ", reclaimedConnections=" + reclaimedConnections + ", statementCacheHits=" + statementCacheHits
+				+ ", statementCacheMisses=" + statementCacheMisses + ", borrowWait=" + borrowWait
+				+ ", holdTimeByCaller=" + holdTimeByCaller + "]";
+	}
+
+}
@@ -0,0 +1,249 @@
+package com.sys.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code PooledConnection}</br></br>
+ * Book-keeping the {@link ConnectionPool} keeps for every physical connection it opened:</br>
+ * whether it is idle, borrowed or reclaimed, since when, and who borrowed it.</br></br>
+ * Borrowers never see the physical connection, only a proxy of their own borrow:
+ * {@code prepareStatement(sql)} and {@code prepareStatement(sql, autoGeneratedKeys)} go through the connection's {@link StatementCache},
+ * other statements are wrapped by it too,
+ * and {@code close()} restores the connection to the pool instead of closing it.
+ * Once the borrow ends, restored or reclaimed, its proxy throws {@code SQLException} on every call but {@code close()} and {@code isClosed()},
+ * so a stale reference cannot reach the connection of a later borrower.
+ *
+ */
+class PooledConnection {
+
+	static final int IDLE = 0;
+	static final int BORROWED = 1;
+	static final int RECLAIMED = 2;
+
+	private final ConnectionPool pool;
+	private final Connection physicalConnection;
+	private final StatementCache statementCache;
+	private volatile Borrow borrow;
+	private final AtomicInteger state = new AtomicInteger(IDLE);
+	private volatile long idleSince;
+	private volatile long borrowedAt;
+	private volatile Exception borrower;
+	private volatile String caller;
+	private volatile boolean leakReported;
+	private volatile boolean leakExempt;
+
+	PooledConnection(ConnectionPool pool, Connection physicalConnection, StatementCache statementCache) {
+		this.pool = pool;
+		this.physicalConnection = physicalConnection;
+		this.statementCache = statementCache;
+		this.idleSince = System.nanoTime();
+	}
+
+	/**
+	 * {@code of}</br></br>
+	 * @return the pooled connection {@code connection} was borrowed from, or {@code null} if it is not a proxy
+	 * of a borrow that is still going on.
+	 */
+	static PooledConnection of(Connection connection) {
+		if (connection == null || !Proxy.isProxyClass(connection.getClass())) {
+			return null;
+		}
+		InvocationHandler handler = Proxy.getInvocationHandler(connection);
+		if (!(handler instanceof Borrow) || ((Borrow) handler).ended.get()) {
+			return null;
+		}
+		return ((Borrow) handler).pooled();
+	}
+
+	/**
+	 * @return the proxy handed to the current borrower, or {@code null} if the connection was never borrowed.
+	 */
+	Connection getConnection() {
+		Borrow current = borrow;
+		return current == null ? null : current.proxy;
+	}
+
+	StatementCache getStatementCache() {
+		return statementCache;
+	}
+
+	long getIdleSince() {
+		return idleSince;
+	}
+
+	long getBorrowedAt() {
+		return borrowedAt;
+	}
+
+	/**
+	 * @return the stack of the borrowing call, or {@code null} if borrowers are not tracked.
+	 */
+	Exception getBorrower() {
+		return borrower;
+	}
+
+	/**
+	 * @return the method that borrowed the connection, or {@code null} if hold times are not recorded.
+	 */
+	String getCaller() {
+		return caller;
+	}
+
+	boolean isBorrowed() {
+		return state.get() == BORROWED;
+	}
+
+	boolean isLeakReported() {
+		return leakReported;
+	}
+
+	void setLeakReported(boolean leakReported) {
+		this.leakReported = leakReported;
+	}
+
+	/**
+	 * @return True if the current borrow is meant to be long, e.g. an open cursor, and is not a leak.
+	 */
+	boolean isLeakExempt() {
+		return leakExempt;
+	}
+
+	void setLeakExempt(boolean leakExempt) {
+		this.leakExempt = leakExempt;
+	}
+
+	/**
+	 * {@code markBorrowed}</br></br>
+	 * Records the borrow time, the borrowing method and, when {@code trackBorrower} is set, the borrowing thread's stack.
+	 */
+	void markBorrowed(boolean trackBorrower, String caller) {
+		borrowedAt = System.nanoTime();
+		this.caller = caller;
+		borrower = trackBorrower
+				? new Exception("Connection borrowed by " + Thread.currentThread().getName())
+				: null;
+		leakReported = false;
+		leakExempt = false;
+		borrow = new Borrow();
+		state.set(BORROWED);
+	}
+
+	/**
+	 * {@code markIdle}</br></br>
+	 * Ends the borrow whose proxy is {@code connection} and moves the connection back to idle.
+	 * @return False if that borrow had already ended, e.g. it was restored before or reclaimed as leaked.
+	 */
+	boolean markIdle(Connection connection) {
+		Borrow current = borrow;
+		if (current == null || current.proxy != connection || !current.ended.compareAndSet(false, true)) {
+			return false;
+		}
+		if (!state.compareAndSet(BORROWED, IDLE)) {
+			return false;
+		}
+		borrower = null;
+		idleSince = System.nanoTime();
+		return true;
+	}
+
+	/**
+	 * {@code markReclaimed}</br></br>
+	 * Takes a borrowed connection away from its borrower, whose proxy stops working.
+	 * @return False if the borrower restored it first.
+	 */
+	boolean markReclaimed() {
+		if (!state.compareAndSet(BORROWED, RECLAIMED)) {
+			return false;
+		}
+		borrow.ended.set(true);
+		return true;
+	}
+
+	/**
+	 * {@code closePhysicalConnection}</br></br>
+	 * Closes the cached statements and the connection to the DB.
+	 * @throws SQLException
+	 */
+	void closePhysicalConnection() throws SQLException {
+		statementCache.closeAll();
+		physicalConnection.close();
+	}
+
+	/**
+	 * {@code closeReclaimedConnection}</br></br>
+	 * Closes the connection to the DB of a connection reclaimed from its borrower, from the reaper thread.</br>
+	 * The statement cache is left alone, since the borrower may still be using it and it is not thread-safe;
+	 * the driver closes the statements with their connection.
+	 * @throws SQLException
+	 */
+	void closeReclaimedConnection() throws SQLException {
+		physicalConnection.close();
+	}
+
+	/**
+	 * {@code Borrow}</br></br>
+	 * Handler of the proxy handed out for one borrow.
+	 */
+	private class Borrow implements InvocationHandler {
+		private final Connection proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, this);
+		private final AtomicBoolean ended = new AtomicBoolean();
+
+		PooledConnection pooled() {
+			return PooledConnection.this;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "PooledConnection [" + physicalConnection + (ended.get() ? ", closed]" : "]");
+			case "close":
+				// closing a closed connection does nothing.
+				if (!ended.get()) {
+					pool.restoreConnection(this.proxy);
+				}
+				return null;
+			case "isClosed":
+				if (ended.get()) {
+					return true;
+				}
+				break;
+			}
+			if (ended.get()) {
+				throw new SQLException("connection closed");
+			}
+			switch (method.getName()) {
+			case "prepareStatement":
+				if (args.length == 1) {
+					return statementCache.prepareStatement(this.proxy, (String) args[0]);
+				}
+				if (args.length == 2 && method.getParameterTypes()[1] == int.class) {
+					return statementCache.prepareStatement(this.proxy, (String) args[0], (Integer) args[1]);
+				}
+				break;
+			}
+			Object result;
+			try {
+				result = method.invoke(physicalConnection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			// other statements are not cached, but must not expose the physical connection either.
+			return result instanceof Statement ? statementCache.uncached(this.proxy, (Statement) result, method.getReturnType()) : result;
+		}
+	}
+
+}
@@ -0,0 +1,224 @@
+package com.sys.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.database.utils.DbExceptionHandler;
+
+/**
+ * {@code StatementCache}</br></br>
+ * LRU cache of {@code PreparedStatement}s for one pooled connection, keyed by SQL text and whether it returns generated keys.</br>
+ * The statements it hands out are proxies: closing one only closes its result set, clears its parameters and returns it to the cache,
+ * so DAOs keep their try-with-resources blocks and still skip Derby's statement compilation on a hit.</br></br>
+ * A connection is used by one borrower at a time, so the cache is not thread-safe.
+ * If the same SQL is prepared again while its cached statement is still open, an uncached statement is returned.</br></br>
+ * Cached or not, a statement's {@code getConnection()} returns the proxy of the borrow that prepared it,
+ * and the {@code getStatement()} of its result sets returns the statement's proxy,
+ * so the physical connection and statements never reach a borrower.
+ *
+ */
+class StatementCache {
+
+	private final Connection connection;
+	private final int maxSize;
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final Map<String, CachedStatement> statements;
+
+	StatementCache(Connection connection, int maxSize, LongAdder hits, LongAdder misses) {
+		this.connection = connection;
+		this.maxSize = maxSize;
+		this.hits = hits;
+		this.misses = misses;
+		this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+				if (size() <= StatementCache.this.maxSize) {
+					return false;
+				}
+				eldest.getValue().evict();
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * {@code prepareStatement}</br></br>
+	 * Returns the cached statement for {@code sql}, preparing and caching it on a miss.
+	 * @param owner - the proxy of the borrow preparing the statement.
+	 * @param sql - the statement's text.
+	 * @return a {@code PreparedStatement} whose {@code close()} gives it back to the cache.
+	 * @throws SQLException
+	 */
+	PreparedStatement prepareStatement(Connection owner, String sql) throws SQLException {
+		return prepareStatement(owner, sql, Statement.NO_GENERATED_KEYS);
+	}
+
+	/**
+	 * {@code prepareStatement}</br></br>
+	 * Same as {@link #prepareStatement(Connection, String)}, for {@code Connection.prepareStatement(sql, autoGeneratedKeys)}.
+	 * @param autoGeneratedKeys - {@code Statement.RETURN_GENERATED_KEYS} or {@code Statement.NO_GENERATED_KEYS}.
+	 * @throws SQLException
+	 */
+	PreparedStatement prepareStatement(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+		if (maxSize <= 0) {
+			return (PreparedStatement) uncached(owner, connection.prepareStatement(sql, autoGeneratedKeys), PreparedStatement.class);
+		}
+		// the same text prepared with and without generated keys are two different statements.
+		String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "[keys] " + sql : sql;
+		CachedStatement cached = statements.get(key);
+		if (cached != null) {
+			if (cached.inUse) {
+				misses.increment();
+				return (PreparedStatement) uncached(owner, connection.prepareStatement(sql, autoGeneratedKeys), PreparedStatement.class);
+			}
+			hits.increment();
+			return (PreparedStatement) cached.checkOut(owner);
+		}
+		misses.increment();
+		cached = new CachedStatement(connection.prepareStatement(sql, autoGeneratedKeys), PreparedStatement.class);
+		statements.put(key, cached);
+		return (PreparedStatement) cached.checkOut(owner);
+	}
+
+	/**
+	 * {@code uncached}</br></br>
+	 * Wraps a statement that is not cached, like the ones of {@code createStatement}, so it hides the physical connection as well.
+	 * Closing it closes the statement.
+	 * @param owner - the proxy of the borrow that created the statement.
+	 * @param type - the statement interface the proxy implements.
+	 */
+	Statement uncached(Connection owner, Statement statement, Class<?> type) {
+		CachedStatement uncached = new CachedStatement(statement, type);
+		Statement proxy = uncached.checkOut(owner);
+		uncached.evicted = true;
+		return proxy;
+	}
+
+	/**
+	 * {@code closeAll}</br></br>
+	 * Closes every cached statement. Used before the physical connection is closed.
+	 */
+	void closeAll() {
+		Iterator<CachedStatement> iterator = statements.values().iterator();
+		while (iterator.hasNext()) {
+			iterator.next().evict();
+			iterator.remove();
+		}
+	}
+
+	int size() {
+		return statements.size();
+	}
+
+	/**
+	 * Wraps one physical statement, and is the invocation handler of the proxies handed to DAOs.
+	 */
+	private static class CachedStatement implements InvocationHandler {
+		private final Statement statement;
+		private final Statement proxy;
+		// the borrow that checked the statement out last.
+		private Connection owner;
+		private boolean inUse;
+		private boolean evicted;
+
+		CachedStatement(Statement statement, Class<?> type) {
+			this.statement = statement;
+			this.proxy = (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { type }, this);
+		}
+
+		Statement checkOut(Connection owner) {
+			this.owner = owner;
+			inUse = true;
+			return proxy;
+		}
+
+		void evict() {
+			evicted = true;
+			if (!inUse) {
+				closeQuietly();
+			}
+		}
+
+		private void closeQuietly() {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				DbExceptionHandler.HandleException(e);
+			}
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (inUse) {
+					inUse = false;
+					if (evicted) {
+						closeQuietly();
+					} else {
+						ResultSet resultSet = statement.getResultSet();
+						if (resultSet != null) {
+							resultSet.close();
+						}
+						((PreparedStatement) statement).clearParameters();
+					}
+				}
+				return null;
+			case "isClosed":
+				return !inUse || statement.isClosed();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "getConnection":
+				return owner;
+			default:
+				Object result;
+				try {
+					result = method.invoke(statement, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+				return result instanceof ResultSet ? wrap((ResultSet) result) : result;
+			}
+		}
+
+		/**
+		 * @return a proxy of {@code resultSet} whose {@code getStatement()} returns this statement's proxy.
+		 */
+		private ResultSet wrap(ResultSet resultSet) {
+			return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+					(resultSetProxy, method, args) -> {
+						switch (method.getName()) {
+						case "getStatement":
+							return proxy;
+						case "equals":
+							return resultSetProxy == args[0];
+						case "hashCode":
+							return System.identityHashCode(resultSetProxy);
+						default:
+							try {
+								return method.invoke(resultSet, args);
+							} catch (InvocationTargetException e) {
+								throw e.getCause();
+							}
+						}
+					});
+		}
+	}
+
+}
@@ -0,0 +1,178 @@
+package com.sys.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.database.utils.DbExceptionHandler;
+import com.sys.exception.ConnectionException;
+
+/**
+ * {@code UnitOfWork}</br></br>
+ * Binds one pooled connection to the current thread for the length of a business operation,
+ * so every DAO call made inside it shares that connection and one DB transaction.</br></br>
+ * Used with try-with-resources:
+ * <pre>
+ * try (UnitOfWork work = UnitOfWork.begin()) {
+ * 	couponDao.read(id);
+ * 	couponDao.addPurchase(id);
+ * 	work.commit();
+ * }
+ * </pre>
+ * Closing a unit of work that was not committed rolls it back.
+ * Its connection is {@link ConnectionPool#exemptFromLeakDetection(Connection) exempt} from the pool's leak threshold,
+ * so a long operation, like a large expiration chunk or a schema migration, is not taken for a leak.
+ * A unit of work begun while another is active on the same thread joins it,
+ * and only the outermost one commits; if a joined one is closed without committing, the whole unit is rolled back.
+ *
+ */
+public class UnitOfWork implements AutoCloseable {
+
+	private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+	private final Connection connection;
+	private final UnitOfWork outer;
+	private boolean committed;
+	private boolean rollbackOnly;
+	private final List<Runnable> afterCommit = new ArrayList<>();
+
+	private UnitOfWork(Connection connection, UnitOfWork outer) {
+		this.connection = connection;
+		this.outer = outer;
+	}
+
+	/**
+	 * {@code begin}</br></br>
+	 * Starts a unit of work on the current thread, or joins the one already active.
+	 * @return the unit of work, to be closed by the caller.
+	 * @throws ConnectionException
+	 */
+	public static UnitOfWork begin() throws ConnectionException {
+		UnitOfWork active = current.get();
+		if (active != null) {
+			return new UnitOfWork(active.connection, active);
+		}
+		Connection connection = ConnectionPool.getInstance().getConnection();
+		ConnectionPool.exemptFromLeakDetection(connection);
+		try {
+			connection.setAutoCommit(false);
+		} catch (SQLException e) {
+			ConnectionPool.getInstance().restoreConnection(connection);
+			throw new ConnectionException("error in starting a transaction", e, connection);
+		}
+		UnitOfWork work = new UnitOfWork(connection, null);
+		current.set(work);
+		return work;
+	}
+
+	/**
+	 * {@code getConnection}</br></br>
+	 * Used by DAOs instead of the pool: returns the connection bound to the current unit of work,
+	 * or borrows one from the pool if there is none.
+	 * @return {@code connection} instance, to be handed back with {@link #restoreConnection(Connection) restoreConnection}.
+	 * @throws ConnectionException
+	 */
+	public static Connection getConnection() throws ConnectionException {
+		UnitOfWork active = current.get();
+		if (active != null) {
+			return active.connection;
+		}
+		return ConnectionPool.getInstance().getConnection();
+	}
+
+	/**
+	 * {@code restoreConnection}</br></br>
+	 * Returns a connection taken with {@link #getConnection() getConnection} to the pool,
+	 * unless it belongs to the current unit of work, which keeps it until it ends.
+	 * @param connection
+	 * @throws ConnectionException
+	 */
+	public static void restoreConnection(Connection connection) throws ConnectionException {
+		UnitOfWork active = current.get();
+		if (active != null && active.connection == connection) {
+			return;
+		}
+		ConnectionPool.getInstance().restoreConnection(connection);
+	}
+
+	/**
+	 * @return True if a unit of work is active on the current thread.
+	 */
+	public static boolean isActive() {
+		return current.get() != null;
+	}
+
+	/**
+	 * {@code afterCommit}</br></br>
+	 * Runs {@code action} once the current unit of work commits, or right away if there is none.
+	 * If the unit of work is rolled back, the action is dropped.
+	 * Used to update in-memory state, such as caches, only with changes that reached the DB.
+	 * @param action - must not throw; a {@code RuntimeException} is logged and the other actions still run.
+	 */
+	public static void afterCommit(Runnable action) {
+		UnitOfWork active = current.get();
+		if (active != null) {
+			active.afterCommit.add(action);
+			return;
+		}
+		action.run();
+	}
+
+	/**
+	 * {@code commit}</br></br>
+	 * Commits the transaction. For a joined unit of work, only marks it as successful.
+	 * @throws ConnectionException if committing failed, or a joined unit of work was rolled back.
+	 */
+	public void commit() throws ConnectionException {
+		if (outer != null) {
+			committed = true;
+			return;
+		}
+		if (rollbackOnly) {
+			throw new ConnectionException("Transaction was marked for rollback by a nested unit of work", null, connection);
+		}
+		try {
+			connection.commit();
+			committed = true;
+		} catch (SQLException e) {
+			throw new ConnectionException("error in committing transaction", e, connection);
+		}
+		for (Runnable action : afterCommit) {
+			try {
+				action.run();
+			} catch (RuntimeException e) {
+				DbExceptionHandler.HandleException(e);
+			}
+		}
+		afterCommit.clear();
+	}
+
+	/**
+	 * {@code close}</br></br>
+	 * Ends the unit of work: rolls back if it was not committed and, for the outermost one,
+	 * returns the connection to the pool.
+	 * @throws ConnectionException
+	 */
+	@Override
+	public void close() throws ConnectionException {
+		if (outer != null) {
+			if (!committed) {
+				outer.rollbackOnly = true;
+			}
+			return;
+		}
+		current.remove();
+		try {
+			if (!committed || rollbackOnly) {
+				connection.rollback();
+			}
+			connection.setAutoCommit(true);
+		} catch (SQLException e) {
+			throw new ConnectionException("error in ending transaction", e, connection);
+		} finally {
+			ConnectionPool.getInstance().restoreConnection(connection);
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.sys.dao;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 
+ * Asynchronous counterpart of {@link DAO}.</br>
+ * Every operation returns at once, with a future completed on the {@link com.sys.connection.DbExecutor DbExecutor}
+ * with the result of the blocking operation, or exceptionally with the {@code CouponSystemException} it threw.</br>
+ * There is no {@code stream}: a stream holds its connection until it is closed, so read it with {@link DAO#stream(int)}.
+ * 
+ * @param <T>
+ */
+
+public interface AsyncDAO<T> {
+
+	/**
+	 * {@code create}</br></br>
+	 * @see DAO#create(Object)
+	 */
+	CompletableFuture<T> create(T t);
+
+	/**
+	 * {@code read}</br></br>
+	 * @see DAO#read(int)
+	 */
+	CompletableFuture<T> read(int id);
+
+	/**
+	 * {@code update}</br></br>
+	 * @see DAO#update(Object)
+	 */
+	CompletableFuture<UpdateResult> update(T t);
+
+	/**
+	 * {@code delete}</br></br>
+	 * @see DAO#delete(int)
+	 */
+	CompletableFuture<Void> delete(int id);
+
+	/**
+	 * {@code readAll}</br></br>
+	 * @see DAO#readAll()
+	 */
+	CompletableFuture<Collection<T>> readAll();
+
+	/**
+	 * {@code readPage}</br></br>
+	 * @see DAO#readPage(String, int)
+	 */
+	CompletableFuture<Page<T>> readPage(String token, int pageSize);
+
+}
@@ -0,0 +1,74 @@
+package com.sys.dao;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+import com.sys.connection.DbExecutor;
+import com.sys.exception.ConnectionException;
+
+/**
+ * {@code AsyncDAOAdapter}</br></br>
+ * Runs the calls of a blocking {@link DAO} on a {@link DbExecutor}.
+ *
+ * @param <T> the bean type.
+ * @param <D> the type of the wrapped DAO.
+ */
+public class AsyncDAOAdapter<T, D extends DAO<T>> implements AsyncDAO<T> {
+
+	protected final D dao;
+	protected final DbExecutor executor;
+
+	/**
+	 * Runs on the shared {@link DbExecutor#getInstance() DbExecutor}.
+	 * @throws ConnectionException if the connection pool can't be created.
+	 */
+	public AsyncDAOAdapter(D dao) throws ConnectionException {
+		this(dao, DbExecutor.getInstance());
+	}
+
+	public AsyncDAOAdapter(D dao, DbExecutor executor) {
+		this.dao = dao;
+		this.executor = executor;
+	}
+
+	/**
+	 * @return the blocking DAO the calls run on.
+	 */
+	public D getDao() {
+		return dao;
+	}
+
+	@Override
+	public CompletableFuture<T> create(T t) {
+		return executor.submit(() -> dao.create(t));
+	}
+
+	@Override
+	public CompletableFuture<T> read(int id) {
+		return executor.submit(() -> dao.read(id));
+	}
+
+	@Override
+	public CompletableFuture<UpdateResult> update(T t) {
+		return executor.submit(() -> dao.update(t));
+	}
+
+	@Override
+	public CompletableFuture<Void> delete(int id) {
+		return executor.submit(() -> {
+			dao.delete(id);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Collection<T>> readAll() {
+		return executor.submit(() -> dao.readAll());
+	}
+
+	@Override
+	public CompletableFuture<Page<T>> readPage(String token, int pageSize) {
+		return executor.submit(() -> dao.readPage(token, pageSize));
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.sys.dao;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 
+ * Asynchronous counterpart of {@link ElementDAO}.
+ *
+ * @param General object type.
+ */
+
+public interface AsyncElementDAO<T> extends AsyncDAO<T> {
+	/**
+	 * {@code exists}</br></br>
+	 * @see ElementDAO#exists(int, int)
+	 */
+	CompletableFuture<Boolean> exists(int customerId, int couponId);
+	/**
+	 * {@code purchase}</br></br>
+	 * @see ElementDAO#purchase(int, int)
+	 */
+	CompletableFuture<PurchaseResult> purchase(int customerId, int couponId);
+	/**
+	 * {@code addPurchase}</br></br>
+	 * @see ElementDAO#addPurchase(int)
+	 */
+	CompletableFuture<Void> addPurchase(int couponId);
+	/**
+	 * {@code deletePurchase}</br></br>
+	 * @see ElementDAO#deletePurchase(int)
+	 */
+	CompletableFuture<Void> deletePurchase(int couponId);
+	/**
+	 * {@code deleteCouponsOfCustomer}</br></br>
+	 * @see ElementDAO#deleteCouponsOfCustomer(int)
+	 */
+	CompletableFuture<Void> deleteCouponsOfCustomer(int customerId);
+	/**
+	 * {@code deleteAllFromHistory}</br></br>
+	 * @see ElementDAO#deleteAllFromHistory(int)
+	 */
+	CompletableFuture<Void> deleteAllFromHistory(int couponId);
+}
@@ -0,0 +1,67 @@
+package com.sys.dao;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.sys.connection.DbExecutor;
+import com.sys.exception.ConnectionException;
+
+/**
+ * {@code AsyncElementDAOAdapter}</br></br>
+ * Runs the calls of a blocking {@link ElementDAO} on a {@link DbExecutor}.
+ *
+ * @param <T> the bean type.
+ * @param <D> the type of the wrapped DAO.
+ */
+public class AsyncElementDAOAdapter<T, D extends ElementDAO<T>> extends AsyncDAOAdapter<T, D> implements AsyncElementDAO<T> {
+
+	public AsyncElementDAOAdapter(D dao) throws ConnectionException {
+		super(dao);
+	}
+
+	public AsyncElementDAOAdapter(D dao, DbExecutor executor) {
+		super(dao, executor);
+	}
+
+	@Override
+	public CompletableFuture<Boolean> exists(int customerId, int couponId) {
+		return executor.submit(() -> dao.exists(customerId, couponId));
+	}
+
+	@Override
+	public CompletableFuture<PurchaseResult> purchase(int customerId, int couponId) {
+		return executor.submit(() -> dao.purchase(customerId, couponId));
+	}
+
+	@Override
+	public CompletableFuture<Void> addPurchase(int couponId) {
+		return executor.submit(() -> {
+			dao.addPurchase(couponId);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> deletePurchase(int couponId) {
+		return executor.submit(() -> {
+			dao.deletePurchase(couponId);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> deleteCouponsOfCustomer(int customerId) {
+		return executor.submit(() -> {
+			dao.deleteCouponsOfCustomer(customerId);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> deleteAllFromHistory(int couponId) {
+		return executor.submit(() -> {
+			dao.deleteAllFromHistory(couponId);
+			return null;
+		});
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.sys.dao;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 
+ * Asynchronous counterpart of {@link UserDAO}.
+ *
+ * @param <T>
+ */
+
+public interface AsyncUserDAO<T> extends AsyncDAO<T> {
+	CompletableFuture<Boolean> exists(String email, String password);
+	CompletableFuture<Integer> getIdByEmail(String email);
+	
+}
@@ -0,0 +1,35 @@
+package com.sys.dao;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.sys.connection.DbExecutor;
+import com.sys.exception.ConnectionException;
+
+/**
+ * {@code AsyncUserDAOAdapter}</br></br>
+ * Runs the calls of a blocking {@link UserDAO} on a {@link DbExecutor}.
+ *
+ * @param <T> the bean type.
+ * @param <D> the type of the wrapped DAO.
+ */
+public class AsyncUserDAOAdapter<T, D extends UserDAO<T>> extends AsyncDAOAdapter<T, D> implements AsyncUserDAO<T> {
+
+	public AsyncUserDAOAdapter(D dao) throws ConnectionException {
+		super(dao);
+	}
+
+	public AsyncUserDAOAdapter(D dao, DbExecutor executor) {
+		super(dao, executor);
+	}
+
+	@Override
+	public CompletableFuture<Boolean> exists(String email, String password) {
+		return executor.submit(() -> dao.exists(email, password));
+	}
+
+	@Override
+	public CompletableFuture<Integer> getIdByEmail(String email) {
+		return executor.submit(() -> dao.getIdByEmail(email));
+	}
+
+}
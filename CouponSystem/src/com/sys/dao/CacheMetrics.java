@@ -0,0 +1,80 @@
+package com.sys.dao;
+
+/**
+ * {@code CacheMetrics}</br></br>
+ * Point-in-time snapshot of a {@link CachedCouponDBDAO}'s counters.
+ *
+ */
+public class CacheMetrics {
+
+	private final int size;
+	private final int maxSize;
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long expirations;
+	private final long invalidations;
+
+	CacheMetrics(int size, int maxSize, long hits, long misses, long evictions, long expirations, long invalidations) {
+		this.size = size;
+		this.maxSize = maxSize;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.expirations = expirations;
+		this.invalidations = invalidations;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return hits as a fraction of all reads, 0 before the first read.
+	 */
+	public double getHitRatio() {
+		long reads = hits + misses;
+		return reads == 0 ? 0 : (double) hits / reads;
+	}
+
+	/**
+	 * @return number of entries dropped, least recently used first, to stay within {@link #getMaxSize() maxSize}.
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return number of entries dropped because they outlived the time to live.
+	 */
+	public long getExpirations() {
+		return expirations;
+	}
+
+	/**
+	 * @return number of entries dropped because their coupon was written.
+	 */
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheMetrics [size=" + size + ", maxSize=" + maxSize + ", hits=" + hits + ", misses=" + misses
+				+ ", hitRatio=" + getHitRatio() + ", evictions=" + evictions + ", expirations=" + expirations
+				+ ", invalidations=" + invalidations + "]";
+	}
+
+}
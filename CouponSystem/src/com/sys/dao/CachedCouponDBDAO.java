@@ -0,0 +1,227 @@
+package com.sys.dao;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sys.beans.Coupon;
+import com.sys.connection.UnitOfWork;
+import com.sys.exception.CouponException;
+
+/**
+ * {@code CachedCouponDBDAO}</br></br>
+ * {@link CouponDBDAO} that keeps the coupons it {@link #read(int) reads} by id in a bounded in-process cache.</br>
+ * Entries live at most the time to live, and when the cache is full the least recently read one is evicted.
+ * Every write this DAO makes to a coupon's row drops that coupon's entry once the write is committed,
+ * and a read that raced with a write is not cached.</br>
+ * Reads inside a {@link UnitOfWork} skip the cache, so a transaction always sees its own writes,
+ * and callers get copies, so changing a returned coupon never changes the cached one.</br></br>
+ * Writes made by other DAO instances, or straight to the DB, are seen only after the entry expires.
+ *
+ */
+public class CachedCouponDBDAO extends CouponDBDAO {
+
+	private final int maxSize;
+	private final long ttlNanos;
+	private final Lock lock = new ReentrantLock();
+	private final LinkedHashMap<Integer, Entry> entries;
+	// bumped on every invalidation, so a read that started before it doesn't cache what it read.
+	private long generation;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long expirations;
+	private long invalidations;
+
+	private static class Entry {
+		private final Coupon coupon;
+		private final long expiresAt;
+
+		Entry(Coupon coupon, long expiresAt) {
+			this.coupon = coupon;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * @param maxSize - the most coupons to keep.
+	 * @param ttl - how long a coupon stays cached after it was read from the DB.
+	 */
+	public CachedCouponDBDAO(int maxSize, Duration ttl) {
+		this(false, maxSize, ttl);
+	}
+
+	/**
+	 * @param titleIndexEnabled - see {@link CouponDBDAO#CouponDBDAO(boolean)}.
+	 * @param maxSize - the most coupons to keep.
+	 * @param ttl - how long a coupon stays cached after it was read from the DB.
+	 */
+	public CachedCouponDBDAO(boolean titleIndexEnabled, int maxSize, Duration ttl) {
+		super(titleIndexEnabled);
+		if (maxSize < 1 || ttl.isNegative() || ttl.isZero()) {
+			throw new IllegalArgumentException("invalid coupon cache bounds: maxSize=" + maxSize + ", ttl=" + ttl);
+		}
+		this.maxSize = maxSize;
+		this.ttlNanos = ttl.toNanos();
+		this.entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+				if (size() > CachedCouponDBDAO.this.maxSize) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+/**
+ * {@code read}</br></br>
+ * Returns the cached coupon if there is a live entry for it, otherwise reads it from the DB and caches it.
+ */
+	@Override
+	public Coupon read(int id) throws CouponException {
+		if (UnitOfWork.isActive()) {
+			return super.read(id);
+		}
+		long readGeneration;
+		lock.lock();
+		try {
+			Entry entry = entries.get(id);
+			if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+				hits++;
+				return new Coupon(entry.coupon);
+			}
+			if (entry != null) {
+				entries.remove(id);
+				expirations++;
+			}
+			misses++;
+			readGeneration = generation;
+		} finally {
+			lock.unlock();
+		}
+
+		Coupon result = readThrough(id);
+		if (result != null) {
+			lock.lock();
+			try {
+				if (readGeneration == generation) {
+					entries.put(id, new Entry(new Coupon(result), System.nanoTime() + ttlNanos));
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		return result;
+	}
+
+/**
+ * {@code readThrough}</br></br>
+ * Reads a coupon the cache missed. Reads it from the DB; overridden by testers that check the cache without one.
+ */
+	protected Coupon readThrough(int id) throws CouponException {
+		return super.read(id);
+	}
+
+	@Override
+	public UpdateResult update(Coupon coupon) throws CouponException {
+		try {
+			return super.update(coupon);
+		} finally {
+			invalidate(coupon.getId());
+		}
+	}
+
+	@Override
+	public void delete(int id) throws CouponException {
+		try {
+			super.delete(id);
+		} finally {
+			invalidate(id);
+		}
+	}
+
+	@Override
+	public PurchaseResult purchase(int customerId, int couponId) throws CouponException {
+		try {
+			return super.purchase(customerId, couponId);
+		} finally {
+			invalidate(couponId);
+		}
+	}
+
+	@Override
+	public void addPurchase(int couponId) throws CouponException {
+		try {
+			super.addPurchase(couponId);
+		} finally {
+			invalidate(couponId);
+		}
+	}
+
+	@Override
+	public void deletePurchase(int couponId) throws CouponException {
+		try {
+			super.deletePurchase(couponId);
+		} finally {
+			invalidate(couponId);
+		}
+	}
+
+	@Override
+	public ExpirationReport deleteExpired(java.util.Date cutoff, int chunkSize) throws CouponException {
+		try {
+			return super.deleteExpired(cutoff, chunkSize);
+		} finally {
+			UnitOfWork.afterCommit(this::invalidateAll);
+		}
+	}
+
+/**
+ * {@code getCacheMetrics}</br></br>
+ * @return the cache's size and counters.
+ */
+	public CacheMetrics getCacheMetrics() {
+		lock.lock();
+		try {
+			return new CacheMetrics(entries.size(), maxSize, hits, misses, evictions, expirations, invalidations);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+/**
+ * {@code invalidateAll}</br></br>
+ * Empties the cache.
+ */
+	public void invalidateAll() {
+		lock.lock();
+		try {
+			invalidations += entries.size();
+			entries.clear();
+			generation++;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void invalidate(int id) {
+		UnitOfWork.afterCommit(() -> {
+			lock.lock();
+			try {
+				if (entries.remove(id) != null) {
+					invalidations++;
+				}
+				generation++;
+			} finally {
+				lock.unlock();
+			}
+		});
+	}
+
+}
@@ -9,13 +9,18 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import com.sys.beans.Company;
 import com.sys.beans.Coupon;
-import com.sys.connection.ConnectionPool;
+import com.sys.beans.CustomerType;
+import com.sys.connection.UnitOfWork;
 import com.sys.exception.CompanyException;
 import com.sys.exception.ConnectionException;
 import com.sys.exception.CouponException;
+import com.sys.exception.CouponSystemException;
 
 public class CompanyDBDAO implements UserDAO<Company> {
 
@@ -23,158 +28,339 @@ public class CompanyDBDAO implements UserDAO<Company> {
 
 	private static String sqlCreate = "insert into companies (name,email,password) values(?,?,?)";
 	private static String sqlRead = "select * from companies where id = ?";
-	private static String sqlUpdate = "update companies set name = ?,password = ?,email = ? where id = ?";
-	private static String sqlDelete = "delete * from companies where id = ?";
+	private static String sqlUpdate = "update companies set name = ?,password = ?,email = ?, version = version + 1 "
+			+ "where id = ? and version = ?";
+	private static String sqlReadVersion = "select version from companies where id = ?";
+	private static String sqlDelete = "delete from companies where id = ?";
+	private static String sqlReadAll = "select * from companies";
+	private static String sqlReadPage = "select * from companies where id > ? order by id fetch first ? rows only";
+	private static String sqlExists = "select * from companies where email = ? and password = ?";
+	private static String sqlGetIdByEmail = "select id from companies where email = ?";
+	private static String sqlExistsByName = "select id from companies where name_key = ?";
+
+	private static final RowMappers<Company> companyMappers = new RowMappers<>(CompanyDBDAO::compileMapper);
 
 	private CouponDBDAO couponDao;
+	private CredentialIndex credentials;
+
 	public CompanyDBDAO(CouponDBDAO couponDao) {
 		super();
 		this.couponDao = couponDao;
 	}
 
-	private Connection connection;
+/**
+ * @param credentials - index to keep up to date with the email and password of every company this DAO creates, updates or deletes.
+ */
+	public CompanyDBDAO(CouponDBDAO couponDao, CredentialIndex credentials) {
+		this(couponDao);
+		this.credentials = credentials;
+	}
+
 
 	@Override
 	public boolean exists(String email, String password) throws CompanyException {
 		boolean result = false;
-		connect();
-
 		if (email.isEmpty() || password.isEmpty()) {
 			throw new CompanyException("Password or Email were empty");
 		}
+		Connection connection = connect();
 
-		try (Statement stmt = connection.createStatement()) {
-			String sql = "select * from companies where email = '" + email + "'" + " and password = '" + password + "'";
-			ResultSet rs = stmt.executeQuery(sql);
+		try (PreparedStatement stmt = connection.prepareStatement(sqlExists)) {
+			stmt.setString(1, email);
+			stmt.setString(2, password);
+			ResultSet rs = stmt.executeQuery();
 			result = rs.next();
 		} catch (SQLException e) {
 			throw new CompanyException("error in checking existance of company", e);
 		} finally {
-			disconnect();
+			disconnect(connection);
 		}
 
 		return result;
 	}
 
+/**
+ * {@code create}</br></br>
+ * Inserts the company and sets its {@code id} to the one the DB generated, read back with the insert's generated keys.
+ * @return the same company, with its id.
+ */
 	@Override
-	public void create(Company company) throws CompanyException {
+	public Company create(Company company) throws CompanyException {
 		// "insert into companies (name,email,password) values(?,?,?)"
-		connect();
-		try (PreparedStatement create = connection.prepareStatement(sqlCreate)) {
+		Connection connection = connect();
+		try (PreparedStatement create = connection.prepareStatement(sqlCreate, Statement.RETURN_GENERATED_KEYS)) {
 
 			create.setString(1, company.getName());
 			create.setString(2, company.getEmail());
-			create.setString(1, company.getPassword());
+			create.setString(3, company.getPassword());
 			create.execute();
+			try (ResultSet keys = create.getGeneratedKeys()) {
+				if (keys.next()) {
+					company.setId(keys.getInt(1));
+				}
+			}
+			indexCredentials(company);
 		} catch (SQLException e) {
 			throw new CompanyException("error in creating company", e, company);
 		} finally {
-			disconnect();
+			disconnect(connection);
 		}
+		return company;
 	}
 
+/**
+ * {@code read}</br></br>
+ * Reads the company without its coupons; they are read on the first {@code getCoupons}.
+ * @see #read(int, FetchMode)
+ */
 	@Override
 	public Company read(int id) throws CompanyException {
+		return read(id, FetchMode.LAZY);
+	}
+
+/**
+ * {@code read}</br></br>
+ * @param id - the company's id.
+ * @param fetchMode - {@link FetchMode#WITH_COUPONS WITH_COUPONS} to read the coupons right away.
+ * @return the company, or {@code null} if there is no company with this id.
+ * @throws CompanyException
+ */
+	public Company read(int id, FetchMode fetchMode) throws CompanyException {
 		Company result = null;
-		connect();
-		result = readFromActiveConnection(id);
-		disconnect();
+		Connection connection = connect();
+		try {
+			result = readFromActiveConnection(connection, id);
+		} finally {
+			disconnect(connection);
+		}
+		if (result != null) {
+			fetchCoupons(result, fetchMode);
+		}
 		return result;
 	}
 
-	private Company readFromActiveConnection(int id, ResultSet rs) throws CompanyException {
-		Company result;
-		result = new Company(id);
+	private Company withLazyCoupons(Company company) {
+		company.setCouponLoader(() -> new ArrayList<>(couponDao.readAll(company)));
+		return company;
+	}
+
+	private void fetchCoupons(Company company, FetchMode fetchMode) throws CompanyException {
+		if (fetchMode == FetchMode.LAZY) {
+			withLazyCoupons(company);
+			return;
+		}
 		try {
-			result.setName(rs.getString("name"));
-			result.setPassword(rs.getString("password"));
-			result.setEmail(rs.getString("email"));
-			result.setCoupons((List<Coupon>) couponDao.readAll(result));
-		} catch (SQLException e) {
-			throw new CompanyException("error in reading company", e, result);
+			company.setCoupons(new ArrayList<>(couponDao.readAll(company)));
 		} catch (CouponException e) {
-			throw new CompanyException("error in reading coupons of company", e, result);
+			throw new CompanyException("error in reading coupons of company", e, company);
 		}
-		return result;
 	}
 
+	private static RowMapper<Company> compileMapper(RowMappers.Columns columns) throws SQLException {
+		int id = columns.of("id");
+		int name = columns.of("name");
+		int password = columns.of("password");
+		int email = columns.of("email");
+		int version = columns.of("version");
+		return rs -> {
+			Company result = new Company();
+			result.setId(rs.getInt(id));
+			result.setName(rs.getString(name));
+			result.setPassword(rs.getString(password));
+			result.setEmail(rs.getString(email));
+			result.setVersion(rs.getInt(version));
+			return result;
+		};
+	}
+
+
 	@Override
-	public void update(Company company) throws CompanyException {
-//		"update companies set name = ?,password = ?,email = ? where id = ?"
-		connect();
+	public UpdateResult update(Company company) throws CompanyException {
+		UpdateResult result;
+//		"update companies set name = ?,password = ?,email = ?, version = version + 1 where id = ? and version = ?"
+		Connection connection = connect();
 		try (PreparedStatement update = connection.prepareStatement(sqlUpdate)) {
 
 			update.setString(1, company.getName());
 			update.setString(2, company.getPassword());
 			update.setString(3, company.getEmail());
 			update.setInt(4, company.getId());
-			update.execute();
+			update.setInt(5, company.getVersion());
+			result = UpdateResult.of(update.executeUpdate(), connection, sqlReadVersion, company.getId());
+			if (result == UpdateResult.UPDATED) {
+				company.setVersion(company.getVersion() + 1);
+				indexCredentials(company);
+			}
 		} catch (SQLException e) {
 			throw new CompanyException("error in updating company", e, company);
 		}
-		finally {disconnect();}
+		finally {disconnect(connection);}
+		return result;
 	}
 
 	@Override
 	public void delete(int id) throws CompanyException {
-		connect();
+		Connection connection = connect();
 		try (PreparedStatement delete = connection.prepareStatement(sqlDelete)) {
 
 			delete.setInt(1, id);
 			delete.execute();
+			if (credentials != null) {
+				UnitOfWork.afterCommit(() -> credentials.remove(CustomerType.COMPANY, id));
+			}
 		} catch (SQLException e) {
 			throw new CompanyException("error in deleting company", e);
 		}
-		finally {disconnect();}
+		finally {disconnect(connection);}
 
 	}
 
+/**
+ * {@code readAll}</br></br>
+ * Reads the companies without their coupons; each company reads its own on the first {@code getCoupons}.
+ * @see #readAll(FetchMode)
+ */
 	@Override
 	public Collection<Company> readAll() throws CompanyException {
-		List<Company> result = new ArrayList<>();
-		connect();
+		return readAll(FetchMode.LAZY);
+	}
+
+/**
+ * {@code readAll}</br></br>
+ * With {@link FetchMode#WITH_COUPONS WITH_COUPONS}, reads the companies and all their coupons with two queries,
+ * one for each table, in one {@link UnitOfWork},
+ * and hands each company its coupons from {@link CouponDBDAO#readAllByCompany() readAllByCompany}.
+ * With {@link FetchMode#LAZY LAZY}, reads only the companies, with a single query and no transaction.
+ * @param fetchMode - whether to read the coupons now or on first access.
+ * @throws CompanyException
+ */
+	public Collection<Company> readAll(FetchMode fetchMode) throws CompanyException {
+		if (fetchMode == FetchMode.LAZY) {
+			List<Company> result = readAllCompanies();
+			for (Company company : result) {
+				withLazyCoupons(company);
+			}
+			return result;
+		}
+
+		try (UnitOfWork work = UnitOfWork.begin()) {
+			List<Company> result = readAllCompanies();
+			Map<Integer, List<Coupon>> coupons = couponDao.readAllByCompany();
+			for (Company company : result) {
+				company.setCoupons(coupons.getOrDefault(company.getId(), new ArrayList<>()));
+			}
+			work.commit();
+			return result;
+		} catch (ConnectionException e) {
+			throw new CompanyException("error in reading all companies", e);
+		} catch (CouponException e) {
+			throw new CompanyException("error in reading coupons of companies", e);
+		}
+	}
 
-		try (Statement stmt = connection.createStatement()) {
-			String sql = "select * from companies";
-			ResultSet rs = stmt.executeQuery(sql);
+	private List<Company> readAllCompanies() throws CompanyException {
+		List<Company> result = new ArrayList<>();
+		Connection connection = connect();
+		try (PreparedStatement stmt = connection.prepareStatement(sqlReadAll)) {
+			ResultSet rs = stmt.executeQuery();
+			RowMapper<Company> mapper = companyMappers.forQuery(sqlReadAll);
 			while (rs.next()) {
-				result.add(readFromActiveConnection(rs.getInt("id"), rs));
+				result.add(mapper.map(rs));
 			}
 		} catch (SQLException e) {
 			throw new CompanyException("error in reading all companies", e);
 		}
-		finally {disconnect();}
+		finally {disconnect(connection);}
 		return result;
+	}
 
+/**
+ * {@code stream}</br></br>
+ * The companies come without their coupons; each reads its own on the first {@code getCoupons}.
+ */
+	@Override
+	public Stream<Company> stream(int fetchSize) throws CompanyException {
+		Connection connection = connect();
+		try {
+			RowMapper<Company> mapper = companyMappers.forQuery(sqlReadAll);
+			return ResultSetStream.open(connection, sqlReadAll, fetchSize, rs -> withLazyCoupons(mapper.map(rs)), () -> disconnect(connection));
+		} catch (SQLException e) {
+			disconnect(connection);
+			throw new CompanyException("error in streaming all companies", e);
+		}
 	}
 
-	private synchronized void connect() throws CompanyException {
-		if (connection == null) {
-			try {
-				connection = ConnectionPool.getInstance().getConnection();
-			} catch (ConnectionException e) {
-				throw new CompanyException("error in connection",e);
-			}
+/**
+ * {@code readPage}</br></br>
+ * The companies come without their coupons; each reads its own on the first {@code getCoupons}.
+ */
+	@Override
+	public Page<Company> readPage(String token, int pageSize) throws CompanyException {
+		Connection connection = connect();
+		try {
+			RowMapper<Company> mapper = companyMappers.forQuery(sqlReadPage);
+			return KeysetQuery.readPage(connection, sqlReadPage, token, pageSize, rs -> withLazyCoupons(mapper.map(rs)), Company::getId);
+		} catch (SQLException | IllegalArgumentException e) {
+			throw new CompanyException("error in reading a page of companies", e);
+		} finally {
+			disconnect(connection);
+		}
+	}
+
+/**
+ * {@code existsByName}</br></br>
+ * Case-insensitive check for a company with this name, on the unique index over {@code name_key}, i.e. {@code upper(name)}.
+ * @return True if a company already has this name.
+ * @throws CompanyException
+ */
+	public boolean existsByName(String name) throws CompanyException {
+		boolean result = false;
+		Connection connection = connect();
+		try (PreparedStatement stmt = connection.prepareStatement(sqlExistsByName)) {
+			stmt.setString(1, name.toUpperCase(Locale.ROOT));
+			ResultSet rs = stmt.executeQuery();
+			result = rs.next();
+		} catch (SQLException e) {
+			throw new CompanyException("error in checking company name", e);
+		}
+		finally {disconnect(connection);}
+		return result;
+	}
+
+	private void indexCredentials(Company company) {
+		if (credentials != null) {
+			int id = company.getId();
+			String email = company.getEmail();
+			String password = company.getPassword();
+			UnitOfWork.afterCommit(() -> credentials.put(CustomerType.COMPANY, id, email, password));
+		}
+	}
+
+	private Connection connect() throws CompanyException {
+		try {
+			return UnitOfWork.getConnection();
+		} catch (ConnectionException e) {
+			throw new CompanyException("error in connection", e);
 		}
 	}
 
-	private synchronized void disconnect() throws CompanyException {
+	private void disconnect(Connection connection) throws CompanyException {
 		try {
-			ConnectionPool.getInstance().restoreConnection(connection);
+			UnitOfWork.restoreConnection(connection);
 		} catch (ConnectionException e) {
-			throw new CompanyException("error in restoring connection",e);
+			throw new CompanyException("error in restoring connection", e);
 		}
-		connection = null;
 	}
 
-	private Company readFromActiveConnection(int id) throws CompanyException {
+	private Company readFromActiveConnection(Connection connection, int id) throws CompanyException {
 		Company result = null;
 		try (PreparedStatement read = connection.prepareStatement(sqlRead)) {
 
 			read.setInt(1, id);
 			ResultSet rs = read.executeQuery();
+			RowMapper<Company> mapper = companyMappers.forQuery(sqlRead);
 			if (rs.next()) {
-				result = readFromActiveConnection(id, rs);
+				result = mapper.map(rs);
 			}
 
 		} catch (SQLException e) {
@@ -185,11 +371,11 @@ public class CompanyDBDAO implements UserDAO<Company> {
 
 	@Override
 	public int getIdByEmail(String email) throws CompanyException {
-		connect();
+		Connection connection = connect();
 		int id = -1;
-		try (Statement stmt = connection.createStatement()) {
-			String sql = "select id from companies where email = '" + email + "'";
-			ResultSet rs = stmt.executeQuery(sql);
+		try (PreparedStatement stmt = connection.prepareStatement(sqlGetIdByEmail)) {
+			stmt.setString(1, email);
+			ResultSet rs = stmt.executeQuery();
 			if (rs.next()) {
 				id = rs.getInt("id");
 			}
@@ -197,7 +383,7 @@ public class CompanyDBDAO implements UserDAO<Company> {
 		} catch (SQLException e) {
 			throw new CompanyException("error in getting company id", e);
 		}
-		finally {disconnect();}
+		finally {disconnect(connection);}
 
 		return id;
 	}
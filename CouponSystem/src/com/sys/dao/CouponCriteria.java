@@ -0,0 +1,194 @@
+package com.sys.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sys.beans.Category;
+
+/**
+ * {@code CouponCriteria}</br></br>
+ * Filters for {@link CouponDBDAO#readAll(CouponCriteria)}, so only the matching coupons leave the DB.</br>
+ * Any combination may be set; unset filters match everything. E.g.
+ * <pre>
+ * couponDao.readAll(new CouponCriteria().ofCompany(id).inCategory(Category.FOOD).maxPrice(50));
+ * </pre>
+ * Each combination of set filters is compiled once to a parameterized query, and the query text is reused,
+ * so the pooled connections' statement caches hit on it as well.
+ *
+ */
+public class CouponCriteria {
+
+	private static final int COMPANY = 1;
+	private static final int CUSTOMER = 1 << 1;
+	private static final int CATEGORY = 1 << 2;
+	private static final int MIN_PRICE = 1 << 3;
+	private static final int MAX_PRICE = 1 << 4;
+	private static final int ACTIVE_FROM = 1 << 5;
+	private static final int ACTIVE_UNTIL = 1 << 6;
+	private static final int IN_STOCK = 1 << 7;
+
+	private static final Map<Integer, String> sqlByShape = new ConcurrentHashMap<>();
+
+	private Integer companyId;
+	private Integer customerId;
+	private Category category;
+	private Double minPrice;
+	private Double maxPrice;
+	private Date activeFrom;
+	private Date activeUntil;
+	private boolean inStock;
+
+	/**
+	 * Coupons of the company with this id.
+	 */
+	public CouponCriteria ofCompany(int companyId) {
+		this.companyId = companyId;
+		return this;
+	}
+
+	/**
+	 * Coupons the customer with this id has purchased.
+	 */
+	public CouponCriteria ofCustomer(int customerId) {
+		this.customerId = customerId;
+		return this;
+	}
+
+	public CouponCriteria inCategory(Category category) {
+		this.category = category;
+		return this;
+	}
+
+	/**
+	 * Coupons that cost at least this much.
+	 */
+	public CouponCriteria minPrice(double minPrice) {
+		this.minPrice = minPrice;
+		return this;
+	}
+
+	/**
+	 * Coupons that cost at most this much.
+	 */
+	public CouponCriteria maxPrice(double maxPrice) {
+		this.maxPrice = maxPrice;
+		return this;
+	}
+
+	/**
+	 * Coupons valid for at least part of the window: starting on or before {@code until}, and ending on or after {@code from}.
+	 * Either end may be {@code null} to leave the window open on that side.
+	 */
+	public CouponCriteria activeBetween(Date from, Date until) {
+		this.activeFrom = from;
+		this.activeUntil = until;
+		return this;
+	}
+
+	/**
+	 * Coupons with an amount above zero.
+	 */
+	public CouponCriteria inStock() {
+		this.inStock = true;
+		return this;
+	}
+
+	private int shape() {
+		int shape = 0;
+		shape |= companyId != null ? COMPANY : 0;
+		shape |= customerId != null ? CUSTOMER : 0;
+		shape |= category != null ? CATEGORY : 0;
+		shape |= minPrice != null ? MIN_PRICE : 0;
+		shape |= maxPrice != null ? MAX_PRICE : 0;
+		shape |= activeFrom != null ? ACTIVE_FROM : 0;
+		shape |= activeUntil != null ? ACTIVE_UNTIL : 0;
+		shape |= inStock ? IN_STOCK : 0;
+		return shape;
+	}
+
+	/**
+	 * {@code toSql}</br></br>
+	 * @return the query for the filters that are set; the same text for every criteria with the same filters set.
+	 */
+	String toSql() {
+		return sqlByShape.computeIfAbsent(shape(), CouponCriteria::compile);
+	}
+
+	/**
+	 * {@code bind}</br></br>
+	 * Sets the query's parameters, in the order {@link #compile(int) compile} wrote them.
+	 */
+	void bind(PreparedStatement statement) throws SQLException {
+		int index = 1;
+		if (companyId != null) {
+			statement.setInt(index++, companyId);
+		}
+		if (customerId != null) {
+			statement.setInt(index++, customerId);
+		}
+		if (category != null) {
+			statement.setString(index++, category.toString());
+		}
+		if (minPrice != null) {
+			statement.setDouble(index++, minPrice);
+		}
+		if (maxPrice != null) {
+			statement.setDouble(index++, maxPrice);
+		}
+		if (activeFrom != null) {
+			statement.setDate(index++, new java.sql.Date(activeFrom.getTime()));
+		}
+		if (activeUntil != null) {
+			statement.setDate(index++, new java.sql.Date(activeUntil.getTime()));
+		}
+	}
+
+	private static String compile(int shape) {
+		StringBuilder sql = new StringBuilder("select coupons.* from coupons");
+		List<String> conditions = new ArrayList<>();
+		if ((shape & CUSTOMER) != 0) {
+			sql.append(" join customers_vs_coupons on coupons.id = customers_vs_coupons.coupon_id");
+		}
+		if ((shape & COMPANY) != 0) {
+			conditions.add("coupons.company_id = ?");
+		}
+		if ((shape & CUSTOMER) != 0) {
+			conditions.add("customers_vs_coupons.customer_id = ?");
+		}
+		if ((shape & CATEGORY) != 0) {
+			conditions.add("coupons.type = ?");
+		}
+		if ((shape & MIN_PRICE) != 0) {
+			conditions.add("coupons.price >= ?");
+		}
+		if ((shape & MAX_PRICE) != 0) {
+			conditions.add("coupons.price <= ?");
+		}
+		if ((shape & ACTIVE_FROM) != 0) {
+			conditions.add("coupons.end_date >= ?");
+		}
+		if ((shape & ACTIVE_UNTIL) != 0) {
+			conditions.add("coupons.start_date <= ?");
+		}
+		if ((shape & IN_STOCK) != 0) {
+			conditions.add("coupons.amount > 0");
+		}
+		if (!conditions.isEmpty()) {
+			sql.append(" where ").append(String.join(" and ", conditions));
+		}
+		return sql.append(" order by coupons.id").toString();
+	}
+
+	@Override
+	public String toString() {
+		return "CouponCriteria [companyId=" + companyId + ", customerId=" + customerId + ", category=" + category
+				+ ", minPrice=" + minPrice + ", maxPrice=" + maxPrice + ", activeFrom=" + activeFrom
+				+ ", activeUntil=" + activeUntil + ", inStock=" + inStock + "]";
+	}
+
+}
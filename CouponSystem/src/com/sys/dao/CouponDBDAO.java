@@ -1,16 +1,27 @@
 package com.sys.dao;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
 
 import com.sys.beans.Category;
 import com.sys.beans.Company;
 import com.sys.beans.Coupon;
 import com.sys.beans.Customer;
 import com.sys.connection.ConnectionPool;
+import com.sys.connection.DbExecutor;
+import com.sys.connection.UnitOfWork;
 import com.sys.exception.ConnectionException;
 import com.sys.exception.CouponException;
+import com.sys.exception.CouponSystemException;
 
 import java.sql.Connection;
 import java.sql.Date;
@@ -26,24 +37,75 @@ public class CouponDBDAO implements ElementDAO<Coupon> {
 	private static String sqlRead = "select * from coupons where id = ?";
 
 	private static String sqlUpdate = "update coupons set " + "title = ?, Start_date = ?, end_date = ?,"
-			+ "amount = ? , category = ? , description = ?,"  + "company_id = ? , category_id = ? ,"+ "price = ? ,image = ? where id = ?";
+			+ "amount = ? , type = ? , description = ?,"  + "company_id = ? , category_id = ? ,"+ "price = ? ,image = ?, version = version + 1 where id = ? and version = ?";
 
+	private static String sqlReadVersion = "select version from coupons where id = ?";
 	private static String sqlDelete = "delete from coupons where id = ?";
 	
-	private static String sqlDeleteHistory = "delete from cutomers_v_coupons where coupon_id = ?";
-	private static String sqlDeleteCustomerHistory = "delete from cutomers_v_coupons where customer_id = ?";
+	private static String sqlReadAll = "select * from coupons";
+	private static String sqlReadAllOwned = "select * from coupons where company_id is not null";
+	private static String sqlReadAllOfCompany = "select * from coupons where company_id = ?";
+	private static String sqlReadPage = "select * from coupons where id > ? order by id fetch first ? rows only";
+	private static String sqlReadPageOfCompany = "select * from coupons where company_id = ? and id > ? "
+			+ "order by id fetch first ? rows only";
+	private static String sqlReadAllOfCustomer = "select coupons.* from coupons join customers_vs_coupons "
+			+ "on coupons.id = customers_vs_coupons.coupon_id where customers_vs_coupons.customer_id = ?";
+	private static String sqlReadAllPurchased = "select customers_vs_coupons.customer_id as owner_id, coupons.* from coupons "
+			+ "join customers_vs_coupons on coupons.id = customers_vs_coupons.coupon_id";
+	private static String sqlExists = "select * from customers_vs_coupons where customer_id = ? and coupon_id = ?";
 
-	
-	private Connection connection;
+	private static String sqlTakeFromStock = "update coupons set amount = amount - 1, version = version + 1 "
+			+ "where id = ? and amount > 0 and end_date >= current_date";
+	private static String sqlDecrementStock = "update coupons set amount = amount - 1, version = version + 1 where id = ? and amount > 0";
+	private static String sqlIncrementStock = "update coupons set amount = amount + 1, version = version + 1 where id = ?";
+	private static String sqlAddHistory = "insert into customers_vs_coupons (customer_id,coupon_id) values (?,?)";
+	private static String sqlDuplicateKeyState = "23505";
+
+	private static String sqlReadExpiredIds = "select id from coupons where end_date < ? and id > ? "
+			+ "order by id fetch first ? rows only";
+	private static String sqlDeleteExpiredHistory = "delete from customers_vs_coupons where coupon_id in "
+			+ "(select id from coupons where end_date < ? and id > ? and id <= ?)";
+	private static String sqlDeleteExpired = "delete from coupons where end_date < ? and id > ? and id <= ?";
+
+	private static String sqlTitleExists = "select id from coupons where company_id = ? and title_key = ?";
+	private static String sqlReadTitleKeys = "select title_key from coupons where company_id = ?";
+
+	private static String sqlDeleteHistory = "delete from customers_vs_coupons where coupon_id = ?";
+	private static String sqlDeleteCustomerHistory = "delete from customers_vs_coupons where customer_id = ?";
+
+
+	static final int PUBLISH_BORROW_TIMEOUT_SECONDS = 10;
+	private static final RowMappers<Coupon> couponMappers = new RowMappers<>(CouponDBDAO::compileMapper);
+
+	private final boolean titleIndexEnabled;
+	private final Map<Integer, Set<String>> titlesByCompany = new ConcurrentHashMap<>();
+
+	public CouponDBDAO() {
+		this(false);
+	}
 
+/**
+ * @param titleIndexEnabled - keep the titles of each company's coupons in memory for {@link #titleExists(int, String) titleExists},
+ * filled per company on its first check and kept up to date by this DAO's writes.
+ */
+	public CouponDBDAO(boolean titleIndexEnabled) {
+		super();
+		this.titleIndexEnabled = titleIndexEnabled;
+	}
+
+/**
+ * {@code create}</br></br>
+ * Inserts the coupon and sets its {@code id} to the one the DB generated, read back with the insert's generated keys.
+ * @return the same coupon, with its id.
+ */
 	@Override
-	public void create(Coupon coupon) throws CouponException {
+	public Coupon create(Coupon coupon) throws CouponException {
 		
 //		 "insert into coupons "
 //					+ "(company_id,category_id,title,start_date,end_date,amount,type,description,price,image) " + "values (?,?,?,?,?,?,?,?,?,?)"
 		
-		connect();
-		try (PreparedStatement create = connection.prepareStatement(sqlCreate)) {
+		Connection connection = connect();
+		try (PreparedStatement create = connection.prepareStatement(sqlCreate, Statement.RETURN_GENERATED_KEYS)) {
 			java.sql.Date startDate = (Date) coupon.getStartDate();
 			java.sql.Date endDate = (Date) coupon.getEndDate();
 			create.setInt(1, coupon.getCompanyId());
@@ -58,63 +120,97 @@ public class CouponDBDAO implements ElementDAO<Coupon> {
 			create.setString(10, coupon.getImage());
 
 			create.execute();
+			try (ResultSet keys = create.getGeneratedKeys()) {
+				if (keys.next()) {
+					coupon.setId(keys.getInt(1));
+				}
+			}
+			String titleKey = titleKey(coupon.getTitle());
+			UnitOfWork.afterCommit(() -> {
+				Set<String> titles = titlesByCompany.get(coupon.getCompanyId());
+				if (titles != null) {
+					titles.add(titleKey);
+				}
+			});
 		} catch (SQLException e) {
+			if (sqlDuplicateKeyState.equals(e.getSQLState())) {
+				throw new CouponException("Coupon already exists with the same title", e, coupon);
+			}
 			throw new CouponException("error in creating coupon",e);
 		}
-		finally {disconnect();}
+		finally {disconnect(connection);}
+		return coupon;
 	}
 
 	@Override
 	public Coupon read(int id) throws CouponException {
 		// ("select * from ? where id = ?")
 		Coupon result = null;
-		connect();
+		Connection connection = connect();
 		try (PreparedStatement read = connection.prepareStatement(sqlRead)) {
-			read.setString(1, "coupon");
-			read.setInt(2, id);
+			read.setInt(1, id);
 			ResultSet rs = read.executeQuery();
+			RowMapper<Coupon> mapper = couponMappers.forQuery(sqlRead);
 			if (rs.next()) {
-				result = readFromActiveConnection(id, rs);
+				result = mapper.map(rs);
 			}
 
 		} catch (SQLException e) {
 			throw new CouponException("error in reading coupon",e);
 		}
-		finally {disconnect();}
+		finally {disconnect(connection);}
 		return result;
 	}
 
-	private Coupon readFromActiveConnection(int id, ResultSet rs) throws SQLException {
-		Coupon result;
-		result = new Coupon();
-
-		int amount = rs.getInt("amount");
-		String title = rs.getString("title");
-		String description = rs.getString("description");
-		Category type = Category.valueOf(rs.getString("type"));
-		double price = rs.getDouble("price");
-		Date startDate = rs.getDate("start_date");
-		Date endDate = rs.getDate("end_date");
-		String image = rs.getString("image");
-		result.setAmount(amount);
-		result.setCouponType(type);
-		result.setEndDate(endDate);
-		result.setStartDate(startDate);
-		result.setId(id);
-		result.setImage(image);
-		result.setDescription(description);
-		result.setPrice(price);
-		result.setTitle(title);
-		return result;
+	private static RowMapper<Coupon> compileMapper(RowMappers.Columns columns) throws SQLException {
+		int id = columns.of("id");
+		int amount = columns.of("amount");
+		int title = columns.of("title");
+		int description = columns.of("description");
+		int type = columns.of("type");
+		int price = columns.of("price");
+		int startDate = columns.of("start_date");
+		int endDate = columns.of("end_date");
+		int image = columns.of("image");
+		int companyId = columns.of("company_id");
+		int categoryId = columns.of("category_id");
+		int version = columns.of("version");
+		return rs -> {
+			Coupon result = new Coupon();
+			result.setId(rs.getInt(id));
+			result.setAmount(rs.getInt(amount));
+			result.setTitle(rs.getString(title));
+			result.setDescription(rs.getString(description));
+			result.setCouponType(Category.of(rs.getString(type)));
+			result.setPrice(rs.getDouble(price));
+			result.setStartDate(rs.getDate(startDate));
+			result.setEndDate(rs.getDate(endDate));
+			result.setImage(rs.getString(image));
+			result.setCompanyId(rs.getInt(companyId));
+			result.setCategoryId(rs.getInt(categoryId));
+			result.setVersion(rs.getInt(version));
+			return result;
+		};
 	}
 
+/**
+ * {@code rowMapper}</br></br>
+ * @param sql - a query that returns the columns of {@code coupons}.
+ * @return the mapper this DAO uses for the rows of one run of {@code sql}.
+ */
+	public static RowMapper<Coupon> rowMapper(String sql) {
+		return couponMappers.forQuery(sql);
+	}
+
+
 	@Override
-	public void update(Coupon coupon) throws CouponException {
+	public UpdateResult update(Coupon coupon) throws CouponException {
+		UpdateResult result;
 
 //		"update coupons set " + "title = ?, Start_date = ?, end_date = ?,"
-//				+ "amount = ? , category = ? , description = ?,"  + "company_id = ? , category_id = ? ,"+ "price = ? ,image = ? where id = ?"
+//				+ "amount = ? , type = ? , description = ?,"  + "company_id = ? , category_id = ? ,"+ "price = ? ,image = ?, version = version + 1 where id = ? and version = ?"
 
-		connect();
+		Connection connection = connect();
 		try (PreparedStatement update = connection.prepareStatement(sqlUpdate)) {
 			update.setString(1, coupon.getTitle());
 			update.setDate(2, (Date) coupon.getStartDate());
@@ -127,60 +223,295 @@ public class CouponDBDAO implements ElementDAO<Coupon> {
 			update.setDouble(9, coupon.getPrice());
 			update.setString(10, coupon.getImage());
 			update.setInt(11, coupon.getId());
-			update.execute();
+			update.setInt(12, coupon.getVersion());
+			result = UpdateResult.of(update.executeUpdate(), connection, sqlReadVersion, coupon.getId());
+			if (result == UpdateResult.UPDATED) {
+				coupon.setVersion(coupon.getVersion() + 1);
+				// the coupon may have moved to another company, leaving the old company's titles stale too.
+				UnitOfWork.afterCommit(titlesByCompany::clear);
+			}
 		} catch (SQLException e) {
 			throw new CouponException("error in updating coupon " + coupon ,e);
 		} finally {
-			disconnect();
+			disconnect(connection);
 		}
+		return result;
 	}
 
 	@Override
 	public void delete(int id) throws CouponException {
-		connect();
+		Connection connection = connect();
 		try (PreparedStatement delete = connection.prepareStatement(sqlDelete)) {
 			delete.setInt(1, id);
 			delete.execute();
+			UnitOfWork.afterCommit(titlesByCompany::clear);
 		} catch (SQLException e) {
 			throw new CouponException("error in deleting coupon",e);
 		} finally {
-			disconnect();
+			disconnect(connection);
 		}
 	}
 
 	@Override
 	public Collection<Coupon> readAll() throws CouponException {
 		List<Coupon> result = new ArrayList<>();
-		connect();
-		try (Statement readAll = connection.createStatement()) {
-			String sql = "select * from coupons";
-			ResultSet rs = readAll.executeQuery(sql);
+		Connection connection = connect();
+		try (PreparedStatement readAll = connection.prepareStatement(sqlReadAll)) {
+			ResultSet rs = readAll.executeQuery();
+			RowMapper<Coupon> mapper = couponMappers.forQuery(sqlReadAll);
 			while (rs.next()) {
-				result.add(readFromActiveConnection(rs.getInt("id"), rs));
+				result.add(mapper.map(rs));
 			}
 
 		} catch (SQLException e) {
 			throw new CouponException("error in reading all coupons",e);
 		} finally {
-			disconnect();
+			disconnect(connection);
+		}
+		return result;
+	}
+
+	@Override
+	public Stream<Coupon> stream(int fetchSize) throws CouponException {
+		Connection connection = connect();
+		try {
+			return ResultSetStream.open(connection, sqlReadAll, fetchSize,
+					couponMappers.forQuery(sqlReadAll), () -> disconnect(connection));
+		} catch (SQLException e) {
+			disconnect(connection);
+			throw new CouponException("error in streaming all coupons", e);
+		}
+	}
+
+/**
+ * {@code stream}</br></br>
+ * Like {@link #stream(int)}, but borrows its own connection from the pool, outside any {@link UnitOfWork},
+ * and waits no longer than {@code borrowTimeout} for it.
+ * @param fetchSize - number of rows to read from the DB per round trip.
+ * @param borrowTimeout - the maximum time to wait for a connection.
+ * @return all coupons, to be used in a try-with-resources block.
+ * @throws CouponException if no connection became available in time, or the query failed.
+ */
+	public Stream<Coupon> stream(int fetchSize, Duration borrowTimeout) throws CouponException {
+		ConnectionPool pool;
+		Connection connection;
+		try {
+			pool = ConnectionPool.getInstance();
+			connection = pool.getConnection(borrowTimeout);
+		} catch (ConnectionException e) {
+			throw new CouponException("error in connecting", e);
+		}
+		try {
+			return ResultSetStream.open(connection, sqlReadAll, fetchSize,
+					couponMappers.forQuery(sqlReadAll), () -> pool.restoreConnection(connection));
+		} catch (SQLException e) {
+			pool.restoreConnection(connection);
+			throw new CouponException("error in streaming all coupons", e);
+		}
+	}
+
+/**
+ * {@code publish}</br></br>
+ * All coupons as a {@code Flow.Publisher}, for subscribers that read them at their own pace.</br>
+ * Each subscription holds a pooled connection from its first {@code request} until it completes or is cancelled,
+ * and reads only the coupons it asked for. It waits up to {@value #PUBLISH_BORROW_TIMEOUT_SECONDS} seconds for the connection.
+ * @param fetchSize - number of rows to read from the DB per round trip.
+ * @return a publisher of all coupons, running on the {@link DbExecutor}.
+ * @throws CouponException
+ */
+	public Flow.Publisher<Coupon> publish(int fetchSize) throws CouponException {
+		return publish(fetchSize, Duration.ofSeconds(PUBLISH_BORROW_TIMEOUT_SECONDS));
+	}
+
+/**
+ * {@code publish}</br></br>
+ * Like {@link #publish(int)}, but a subscription fails with {@code onError} if it gets no connection within {@code borrowTimeout}.
+ * @param fetchSize - number of rows to read from the DB per round trip.
+ * @param borrowTimeout - the maximum time a subscription waits for a connection.
+ * @return a publisher of all coupons, running on the {@link DbExecutor}.
+ * @throws CouponException
+ */
+	public Flow.Publisher<Coupon> publish(int fetchSize, Duration borrowTimeout) throws CouponException {
+		try {
+			return new CursorPublisher<>(() -> stream(fetchSize, borrowTimeout), DbExecutor.getInstance());
+		} catch (ConnectionException e) {
+			throw new CouponException("error in publishing all coupons", e);
+		}
+	}
+
+	@Override
+	public Page<Coupon> readPage(String token, int pageSize) throws CouponException {
+		Connection connection = connect();
+		try {
+			return KeysetQuery.readPage(connection, sqlReadPage, token, pageSize,
+					couponMappers.forQuery(sqlReadPage), Coupon::getId);
+		} catch (SQLException | IllegalArgumentException e) {
+			throw new CouponException("error in reading a page of coupons", e);
+		} finally {
+			disconnect(connection);
+		}
+	}
+
+/**
+ * {@code readPage}</br></br>
+ * Same as {@link #readPage(String, int)}, for the coupons of one company.
+ */
+	public Page<Coupon> readPage(Company company, String token, int pageSize) throws CouponException {
+		Connection connection = connect();
+		try {
+			return KeysetQuery.readPage(connection, sqlReadPageOfCompany, token, pageSize,
+					couponMappers.forQuery(sqlReadPageOfCompany), Coupon::getId, company.getId());
+		} catch (SQLException | IllegalArgumentException e) {
+			throw new CouponException("error in reading a page of coupons of company", e);
+		} finally {
+			disconnect(connection);
+		}
+	}
+
+/**
+ * {@code readAll}</br></br>
+ * Reads only the coupons that match the criteria; the filtering is done by the DB.
+ * @param criteria - the filters to apply.
+ * @return the matching coupons, in id order.
+ * @throws CouponException
+ */
+	public List<Coupon> readAll(CouponCriteria criteria) throws CouponException {
+		List<Coupon> result = new ArrayList<>();
+		Connection connection = connect();
+		try (PreparedStatement read = connection.prepareStatement(criteria.toSql())) {
+			criteria.bind(read);
+			ResultSet rs = read.executeQuery();
+			RowMapper<Coupon> mapper = couponMappers.forQuery(criteria.toSql());
+			while (rs.next()) {
+				result.add(mapper.map(rs));
+			}
+		} catch (SQLException e) {
+			throw new CouponException("error in reading coupons by " + criteria, e);
+		} finally {
+			disconnect(connection);
+		}
+		return result;
+	}
+
+/**
+ * {@code titleExists}</br></br>
+ * Case-insensitive check for a coupon with this title in the company, on the unique index over {@code (company_id, title_key)}.</br>
+ * With the title index enabled, answered from memory after the company's first check.
+ * The unique index still has the last word: {@link #create(Coupon) create} fails on a duplicate title either way.
+ * @return True if the company already has a coupon with this title.
+ * @throws CouponException
+ */
+	public boolean titleExists(int companyId, String title) throws CouponException {
+		String titleKey = titleKey(title);
+		if (titleIndexEnabled) {
+			return titlesOf(companyId).contains(titleKey);
+		}
+		boolean result = false;
+		Connection connection = connect();
+		try (PreparedStatement exists = connection.prepareStatement(sqlTitleExists)) {
+			exists.setInt(1, companyId);
+			exists.setString(2, titleKey);
+			ResultSet rs = exists.executeQuery();
+			result = rs.next();
+		} catch (SQLException e) {
+			throw new CouponException("error in checking coupon title", e);
+		} finally {
+			disconnect(connection);
+		}
+		return result;
+	}
+
+	private Set<String> titlesOf(int companyId) throws CouponException {
+		Set<String> titles = titlesByCompany.get(companyId);
+		if (titles != null) {
+			return titles;
+		}
+		titles = ConcurrentHashMap.newKeySet();
+		Connection connection = connect();
+		try (PreparedStatement read = connection.prepareStatement(sqlReadTitleKeys)) {
+			read.setInt(1, companyId);
+			ResultSet rs = read.executeQuery();
+			while (rs.next()) {
+				titles.add(rs.getString(1));
+			}
+		} catch (SQLException e) {
+			throw new CouponException("error in reading coupon titles of company", e);
+		} finally {
+			disconnect(connection);
+		}
+		Set<String> loaded = titlesByCompany.putIfAbsent(companyId, titles);
+		return loaded != null ? loaded : titles;
+	}
+
+	// same key as the title_key column, upper(title).
+	private static String titleKey(String title) {
+		return title.toUpperCase(Locale.ROOT);
+	}
+
+/**
+ * {@code readAllByCompany}</br></br>
+ * Reads every coupon in one query and groups them by {@code company_id},
+ * so a list of companies can get its coupons without a query per company.
+ * @return coupons keyed by company id; companies with no coupons have no entry.
+ * @throws CouponException
+ */
+	public Map<Integer, List<Coupon>> readAllByCompany() throws CouponException {
+		Map<Integer, List<Coupon>> result = new HashMap<>();
+		Connection connection = connect();
+		try (PreparedStatement readAll = connection.prepareStatement(sqlReadAllOwned)) {
+			ResultSet rs = readAll.executeQuery();
+			RowMapper<Coupon> mapper = couponMappers.forQuery(sqlReadAllOwned);
+			while (rs.next()) {
+				Coupon coupon = mapper.map(rs);
+				result.computeIfAbsent(coupon.getCompanyId(), companyId -> new ArrayList<>()).add(coupon);
+			}
+		} catch (SQLException e) {
+			throw new CouponException("error in reading all coupons by company", e);
+		} finally {
+			disconnect(connection);
+		}
+		return result;
+	}
+
+/**
+ * {@code readAllByCustomer}</br></br>
+ * Reads every purchased coupon in one query and groups them by the customer who bought them.
+ * @return coupons keyed by customer id; customers with no coupons have no entry.
+ * @throws CouponException
+ */
+	public Map<Integer, List<Coupon>> readAllByCustomer() throws CouponException {
+		Map<Integer, List<Coupon>> result = new HashMap<>();
+		Connection connection = connect();
+		try (PreparedStatement readAll = connection.prepareStatement(sqlReadAllPurchased)) {
+			ResultSet rs = readAll.executeQuery();
+			RowMapper<Coupon> mapper = couponMappers.forQuery(sqlReadAllPurchased);
+			while (rs.next()) {
+				Coupon coupon = mapper.map(rs);
+				result.computeIfAbsent(rs.getInt("owner_id"), customerId -> new ArrayList<>()).add(coupon);
+			}
+		} catch (SQLException e) {
+			throw new CouponException("error in reading all coupons by customer", e);
+		} finally {
+			disconnect(connection);
 		}
 		return result;
 	}
 
 	public Collection<Coupon> readAll(Company company) throws CouponException {
 		List<Coupon> result = new ArrayList<>();
-		connect();
-		try (Statement readAll = connection.createStatement()) {
-			String sql = "select * from coupons where company_id = " + company.getId();
-			ResultSet rs = readAll.executeQuery(sql);
+		Connection connection = connect();
+		try (PreparedStatement readAll = connection.prepareStatement(sqlReadAllOfCompany)) {
+			readAll.setInt(1, company.getId());
+			ResultSet rs = readAll.executeQuery();
+			RowMapper<Coupon> mapper = couponMappers.forQuery(sqlReadAllOfCompany);
 			while (rs.next()) {
-				result.add(readFromActiveConnection(rs.getInt("id"), rs));
+				result.add(mapper.map(rs));
 			}
 
 		} catch (SQLException e) {
 			throw new CouponException("Exception raised in reading all coupons",e);
 		} finally {
-			disconnect();
+			disconnect(connection);
 		}
 
 		return result;
@@ -189,47 +520,44 @@ public class CouponDBDAO implements ElementDAO<Coupon> {
 	public Collection<Coupon> readAll(Customer customer) throws CouponException{
 		List<Coupon> result = new ArrayList<Coupon>();
 		
-		connect();
-		String sql = "select * from customers_vs_coupons where customer_id = ?";
-		try(PreparedStatement read = connection.prepareStatement(sql)){
+		Connection connection = connect();
+		try(PreparedStatement read = connection.prepareStatement(sqlReadAllOfCustomer)){
 			read.setInt(1, customer.getId());
 			ResultSet rs = read.executeQuery();
-			
+			RowMapper<Coupon> mapper = couponMappers.forQuery(sqlReadAllOfCustomer);
 			while(rs.next()) {
-				result.add(readFromActiveConnection(rs.getInt("coupon_id"),rs));
+				result.add(mapper.map(rs));
 			}
 		} catch (SQLException e) {
 			throw new CouponException("error in reading all coupons of customer", e);
 		}
 		finally {
-			disconnect();
+			disconnect(connection);
 		}
 		return result;
 	}
 
-	private synchronized void connect() throws CouponException {
+	private Connection connect() throws CouponException {
 		try {
-			connection = ConnectionPool.getInstance().getConnection();
+			return UnitOfWork.getConnection();
 		} catch (ConnectionException e) {
 			throw new CouponException("error in connecting", e);
 		}
 	}
 
-	private synchronized void disconnect() throws CouponException {
+	private void disconnect(Connection connection) throws CouponException {
 		try {
-			ConnectionPool.getInstance().restoreConnection(connection);
+			UnitOfWork.restoreConnection(connection);
 		} catch (ConnectionException e) {
 			throw new CouponException("error in disconnecting", e);
 		}
-		connection = null;
 	}
 
 	@Override
 	public boolean exists(int customerId, int couponId) throws CouponException {
 		boolean result = false;
-		connect();
-		String preparedSql = "select * from customers_vs_coupons where customer_id = ? , coupon_id = ?";
-		try(PreparedStatement read = connection.prepareStatement(preparedSql)){
+		Connection connection = connect();
+		try(PreparedStatement read = connection.prepareStatement(sqlExists)){
 			read.setInt(1, customerId);
 			read.setInt(2, couponId);
 			ResultSet rs = read.executeQuery();
@@ -239,45 +567,190 @@ public class CouponDBDAO implements ElementDAO<Coupon> {
 			throw new CouponException("error in fetching coupon from customers_vs_coupons",e);
 		}
 		finally {
-			disconnect();
+			disconnect(connection);
 		}
 		return result;
 	}
 
+	@Override
+	public PurchaseResult purchase(int customerId, int couponId) throws CouponException {
+		try (UnitOfWork work = UnitOfWork.begin()) {
+			Connection connection = connect();
+			try {
+				// checked up front so a repeat purchase never takes stock, even on a DB without the
+				// customers_vs_coupons primary key; the duplicate-key check below still covers concurrent buyers.
+				if (exists(customerId, couponId)) {
+					return PurchaseResult.ALREADY_PURCHASED;
+				}
+				if (!executeUpdate(connection, sqlTakeFromStock, couponId)) {
+					return reasonNotPurchased(couponId);
+				}
+				try (PreparedStatement insert = connection.prepareStatement(sqlAddHistory)) {
+					insert.setInt(1, customerId);
+					insert.setInt(2, couponId);
+					insert.executeUpdate();
+				} catch (SQLException e) {
+					// the unit of work is rolled back on close, putting the coupon back in stock.
+					if (sqlDuplicateKeyState.equals(e.getSQLState())) {
+						return PurchaseResult.ALREADY_PURCHASED;
+					}
+					throw e;
+				}
+				work.commit();
+				return PurchaseResult.PURCHASED;
+			} catch (SQLException e) {
+				throw new CouponException("error in purchasing coupon", e);
+			} finally {
+				disconnect(connection);
+			}
+		} catch (ConnectionException e) {
+			throw new CouponException("error in purchasing coupon", e);
+		}
+	}
+
+	/**
+	 * Only called when the stock update matched no row, to tell the caller why.
+	 */
+	private PurchaseResult reasonNotPurchased(int couponId) throws CouponException {
+		Coupon coupon = read(couponId);
+		if (coupon == null) {
+			return PurchaseResult.NOT_FOUND;
+		}
+		if (coupon.getAmount() <= 0) {
+			return PurchaseResult.OUT_OF_STOCK;
+		}
+		return PurchaseResult.EXPIRED;
+	}
+
 	@Override
 	public void addPurchase(int couponId) throws CouponException {
-		readAndIncrement(couponId,-1);
+		Connection connection = connect();
+		try {
+			if (!executeUpdate(connection, sqlDecrementStock, couponId)) {
+				throw new CouponException("Coupon out of stock");
+			}
+		} catch (SQLException e) {
+			throw new CouponException("error in adding purchase", e);
+		} finally {
+			disconnect(connection);
+		}
 	}
 
 	@Override
 	public void deletePurchase(int couponId) throws CouponException {
-		readAndIncrement(couponId, 1);
+		Connection connection = connect();
+		try {
+			executeUpdate(connection, sqlIncrementStock, couponId);
+		} catch (SQLException e) {
+			throw new CouponException("error in deleting purchase", e);
+		} finally {
+			disconnect(connection);
+		}
+	}
+
+	/**
+	 * @return True if the statement changed a row.
+	 */
+	private boolean executeUpdate(Connection connection, String sql, int couponId) throws SQLException {
+		try (PreparedStatement update = connection.prepareStatement(sql)) {
+			update.setInt(1, couponId);
+			return update.executeUpdate() > 0;
 		}
-	
-	private void readAndIncrement(int couponId,int increment) throws CouponException {
-		Coupon coupon = read(couponId);
-		coupon.setAmount(coupon.getAmount()+increment);
-		update(coupon);
 	}
 	
 	@Override
 	public void deleteAllFromHistory(int couponId) throws CouponException {
+		Connection connection = connect();
 		try (PreparedStatement delete = connection.prepareStatement(sqlDeleteHistory)) {
 			delete.setInt(1, couponId);
 			delete.execute();
 		} catch (SQLException e) {
 			throw new CouponException("error in deleting purchase history of coupons", e);
+		} finally {
+			disconnect(connection);
 		}
 	}
 	
 	//TODO remove purchases from the coupons so another can buy them
 	public void deleteCouponsOfCustomer(int customerId) 
 			throws CouponException{
+		Connection connection = connect();
 		try (PreparedStatement delete = connection.prepareStatement(sqlDeleteCustomerHistory)) {
-		delete.setInt(1, customerId);
-		delete.execute();
-	} catch (SQLException e) {
-		throw new CouponException("error in deleting history of customer", e);
+			delete.setInt(1, customerId);
+			delete.execute();
+		} catch (SQLException e) {
+			throw new CouponException("error in deleting history of customer", e);
+		} finally {
+			disconnect(connection);
+		}
 	}
+
+	/**
+	 * {@code deleteExpired}</br></br>
+	 * Deletes every coupon that ended before {@code cutoff}, together with its purchase history,
+	 * using set-based deletes over chunks of at most {@code chunkSize} coupons, each chunk in its own transaction.
+	 * @param cutoff - coupons with an end date before this date are deleted.
+	 * @param chunkSize - the largest number of coupons deleted in one transaction.
+	 * @return the number of rows removed and the time it took.
+	 * @throws CouponException
+	 */
+	public ExpirationReport deleteExpired(java.util.Date cutoff, int chunkSize) throws CouponException {
+		long start = System.nanoTime();
+		Date endDate = new Date(cutoff.getTime());
+		int couponsDeleted = 0;
+		int purchasesDeleted = 0;
+		int chunks = 0;
+		int lastId = 0;
+		while (true) {
+			try (UnitOfWork work = UnitOfWork.begin()) {
+				Connection connection = connect();
+				try {
+					int chunkEnd = lastExpiredIdOfChunk(connection, endDate, lastId, chunkSize);
+					if (chunkEnd == lastId) {
+						break;
+					}
+					purchasesDeleted += deleteRange(connection, sqlDeleteExpiredHistory, endDate, lastId, chunkEnd);
+					couponsDeleted += deleteRange(connection, sqlDeleteExpired, endDate, lastId, chunkEnd);
+					UnitOfWork.afterCommit(titlesByCompany::clear);
+					work.commit();
+					chunks++;
+					lastId = chunkEnd;
+				} catch (SQLException e) {
+					throw new CouponException("error in deleting expired coupons", e);
+				} finally {
+					disconnect(connection);
+				}
+			} catch (ConnectionException e) {
+				throw new CouponException("error in deleting expired coupons", e);
+			}
+		}
+		return new ExpirationReport(couponsDeleted, purchasesDeleted, chunks, Duration.ofNanos(System.nanoTime() - start));
+	}
+
+	/**
+	 * @return the highest id among the next {@code chunkSize} expired coupons after {@code lastId},
+	 * or {@code lastId} if there are none left.
+	 */
+	private int lastExpiredIdOfChunk(Connection connection, Date endDate, int lastId, int chunkSize) throws SQLException {
+		int result = lastId;
+		try (PreparedStatement read = connection.prepareStatement(sqlReadExpiredIds)) {
+			read.setDate(1, endDate);
+			read.setInt(2, lastId);
+			read.setInt(3, chunkSize);
+			ResultSet rs = read.executeQuery();
+			while (rs.next()) {
+				result = rs.getInt(1);
+			}
+		}
+		return result;
+	}
+
+	private int deleteRange(Connection connection, String sql, Date endDate, int fromId, int toId) throws SQLException {
+		try (PreparedStatement delete = connection.prepareStatement(sql)) {
+			delete.setDate(1, endDate);
+			delete.setInt(2, fromId);
+			delete.setInt(3, toId);
+			return delete.executeUpdate();
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,392 @@
+package com.sys.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sys.beans.CustomerType;
+import com.sys.connection.UnitOfWork;
+import com.sys.exception.CouponSystemException;
+
+/**
+ * {@code CredentialIndex}</br></br>
+ * In-memory index of the login credentials of companies and customers, by email, so a login is one map lookup
+ * instead of a round trip per table.</br>
+ * Passwords are not kept: each entry holds a random salt and the SHA-256 hash of the salted password.</br></br>
+ * It is {@link #warmUp() warmed} with every company and customer on start-up, and the {@link CompanyDBDAO} and
+ * {@link CustomerDBDAO} it is given to keep it up to date with their creates, updates and deletes once they commit.
+ * A login that matches nothing in the index is looked up in the DB with a single prepared query, unless the index
+ * already knows the email's company and customer: each of the two is either indexed, or was recently found missing in the DB.
+ * What the query finds is indexed, and what it does not find is remembered as missing for {@link #MISS_TTL},
+ * so repeated failed logins with the same email do not all go to the DB.
+ *
+ */
+public class CredentialIndex {
+
+	private static final String sqlReadCompanies = "select id, email, password from companies";
+	private static final String sqlReadCustomers = "select id, email, password from customers";
+	private static final String sqlReadByEmail = "select cast('COMPANY' as varchar(8)) as role, id, password from companies where email = ? "
+			+ "union all select cast('CUSTOMER' as varchar(8)) as role, id, password from customers where email = ?";
+	private static final int SALT_LENGTH = 16;
+	private static final Duration MISS_TTL = Duration.ofSeconds(30);
+	private static final int MAX_MISSES = 10_000;
+	private static final CustomerType[] roles = { CustomerType.COMPANY, CustomerType.CUSTOMER };
+	// a company and a customer may share an email; login tries the company first, as it always has.
+	private static final Comparator<Credential> loginOrder = Comparator.comparing(Credential::getRole)
+			.thenComparingInt(Credential::getId);
+
+	/**
+	 * {@code Credential}</br></br>
+	 * Role and id of the user an email belongs to, with the hash of their password.
+	 */
+	public static class Credential {
+		private final CustomerType role;
+		private final int id;
+		private final String email;
+		private final byte[] salt;
+		private final byte[] hash;
+
+		private Credential(CustomerType role, int id, String email, byte[] salt, byte[] hash) {
+			this.role = role;
+			this.id = id;
+			this.email = email;
+			this.salt = salt;
+			this.hash = hash;
+		}
+
+		public CustomerType getRole() {
+			return role;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		boolean matches(String password) {
+			return MessageDigest.isEqual(hash, hash(salt, password));
+		}
+
+		@Override
+		public String toString() {
+			return "Credential [role=" + role + ", id=" + id + ", email=" + email + "]";
+		}
+	}
+
+	private final SecureRandom random = new SecureRandom();
+	private final Map<String, List<Credential>> byEmail = new ConcurrentHashMap<>();
+	private final Map<CustomerType, Map<Integer, String>> emailById = new EnumMap<>(CustomerType.class);
+	// guards every change to the maps; lookups read byEmail without it.
+	private final Lock lock = new ReentrantLock();
+	// bumped on every change; with writtenAt, lets a DB read that started before a change skip just the entries it changed.
+	private long generation;
+	// the generation of the last put or remove of each company and customer id, recorded only while a DB read is running
+	// and cleared when the last one ends; guarded by the lock.
+	private final Map<CustomerType, Map<Integer, Long>> writtenAt = new EnumMap<>(CustomerType.class);
+	// number of warm-ups and by-email loads reading the DB; guarded by the lock.
+	private int runningLoads;
+	// emails the DB had no company or customer for, to the nanoTime that is remembered until.
+	private final Map<CustomerType, Map<String, Long>> missingUntil = new EnumMap<>(CustomerType.class);
+
+	public CredentialIndex() {
+		emailById.put(CustomerType.COMPANY, new ConcurrentHashMap<>());
+		emailById.put(CustomerType.CUSTOMER, new ConcurrentHashMap<>());
+		writtenAt.put(CustomerType.COMPANY, new HashMap<>());
+		writtenAt.put(CustomerType.CUSTOMER, new HashMap<>());
+		missingUntil.put(CustomerType.COMPANY, new ConcurrentHashMap<>());
+		missingUntil.put(CustomerType.CUSTOMER, new ConcurrentHashMap<>());
+	}
+
+/**
+ * {@code warmUp}</br></br>
+ * Loads the credentials of every company and customer.
+ * A company or customer the DAOs created, updated or deleted while the tables were read keeps what the DAOs wrote.
+ * @throws CouponSystemException
+ */
+	public void warmUp() throws CouponSystemException {
+		long readGeneration = beginLoad();
+		try {
+			putAll(readAll(), readGeneration);
+		} finally {
+			endLoad();
+		}
+	}
+
+/**
+ * {@code find}</br></br>
+ * @return the credential of the company or customer with this email and password, or {@code null} if there is none or the password is empty.
+ * @throws CouponSystemException if the index did not know the email's company and customer and looking them up in the DB failed.
+ */
+	public Credential find(String email, String password) throws CouponSystemException {
+		if (email == null || password == null || password.isEmpty()) {
+			return null;
+		}
+		List<Credential> credentials = byEmail.getOrDefault(email, Collections.emptyList());
+		Credential credential = match(credentials, password);
+		if (credential != null || isKnown(email, credentials)) {
+			return credential;
+		}
+		return match(load(email), password);
+	}
+
+	public int size() {
+		return byEmail.values().stream().mapToInt(List::size).sum();
+	}
+
+	/**
+	 * Adds the credential of a created company or customer, or replaces that of an updated one.
+	 */
+	protected void put(CustomerType role, int id, String email, String password) {
+		Credential credential = credential(role, id, email, password);
+		lock.lock();
+		try {
+			written(role, id);
+			unindex(role, id);
+			index(credential);
+			missingUntil.get(role).remove(email);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Drops the credential of a deleted company or customer.
+	 */
+	protected void remove(CustomerType role, int id) {
+		lock.lock();
+		try {
+			written(role, id);
+			unindex(role, id);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private List<Credential> load(String email) throws CouponSystemException {
+		long readGeneration = beginLoad();
+		List<Credential> loaded;
+		try {
+			loaded = new ArrayList<>(readByEmail(email));
+			putAll(loaded, readGeneration);
+			remember(email, loaded, readGeneration);
+		} finally {
+			endLoad();
+		}
+		loaded.sort(loginOrder);
+		return loaded;
+	}
+
+	/**
+	 * {@code readAll}</br></br>
+	 * Reads the credentials of every company and customer from the DB; overridden by testers that check the index without one.
+	 * @throws CouponSystemException
+	 */
+	protected List<Credential> readAll() throws CouponSystemException {
+		List<Credential> loaded = new ArrayList<>();
+		Connection connection = UnitOfWork.getConnection();
+		try {
+			read(connection, sqlReadCompanies, CustomerType.COMPANY, loaded);
+			read(connection, sqlReadCustomers, CustomerType.CUSTOMER, loaded);
+		} catch (SQLException e) {
+			throw new CouponSystemException("error in loading credentials", e);
+		} finally {
+			UnitOfWork.restoreConnection(connection);
+		}
+		return loaded;
+	}
+
+	/**
+	 * {@code readByEmail}</br></br>
+	 * Reads the credentials of the company and customer with this email from the DB, with one query.
+	 * @throws CouponSystemException
+	 */
+	protected List<Credential> readByEmail(String email) throws CouponSystemException {
+		List<Credential> loaded = new ArrayList<>();
+		Connection connection = UnitOfWork.getConnection();
+		try (PreparedStatement read = connection.prepareStatement(sqlReadByEmail)) {
+			read.setString(1, email);
+			read.setString(2, email);
+			ResultSet rs = read.executeQuery();
+			while (rs.next()) {
+				loaded.add(credential(CustomerType.valueOf(rs.getString(1)), rs.getInt(2), email, rs.getString(3)));
+			}
+		} catch (SQLException e) {
+			throw new CouponSystemException("error in loading credentials of " + email, e);
+		} finally {
+			UnitOfWork.restoreConnection(connection);
+		}
+		return loaded;
+	}
+
+	private static Credential match(List<Credential> credentials, String password) {
+		for (Credential credential : credentials) {
+			if (credential.matches(password)) {
+				return credential;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return True if the email's company and customer are each either indexed or recently found missing in the DB.
+	 */
+	private boolean isKnown(String email, List<Credential> credentials) {
+		long now = System.nanoTime();
+		for (CustomerType role : roles) {
+			if (credentials.stream().noneMatch(credential -> credential.role == role)) {
+				Long until = missingUntil.get(role).get(email);
+				if (until == null || until - now < 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Remembers the roles a DB read found no credential of, unless the index changed since the read began.
+	 */
+	private void remember(String email, List<Credential> loaded, long readGeneration) {
+		long until = System.nanoTime() + MISS_TTL.toNanos();
+		lock.lock();
+		try {
+			if (generation != readGeneration) {
+				return;
+			}
+			for (CustomerType role : roles) {
+				if (loaded.stream().noneMatch(credential -> credential.role == role)) {
+					Map<String, Long> missing = missingUntil.get(role);
+					if (missing.size() >= MAX_MISSES) {
+						long now = System.nanoTime();
+						missing.values().removeIf(expiry -> expiry - now < 0);
+						if (missing.size() >= MAX_MISSES) {
+							missing.clear();
+						}
+					}
+					missing.put(email, until);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void read(Connection connection, String sql, CustomerType role, List<Credential> loaded) throws SQLException {
+		try (PreparedStatement read = connection.prepareStatement(sql)) {
+			ResultSet rs = read.executeQuery();
+			while (rs.next()) {
+				loaded.add(credential(role, rs.getInt(1), rs.getString(2), rs.getString(3)));
+			}
+		}
+	}
+
+	/**
+	 * Indexes what a DB read loaded, except the entries already indexed and those written since the read began.
+	 */
+	private void putAll(List<Credential> loaded, long readGeneration) {
+		lock.lock();
+		try {
+			for (Credential credential : loaded) {
+				Long written = writtenAt.get(credential.role).get(credential.id);
+				if ((written == null || written <= readGeneration)
+						&& !emailById.get(credential.role).containsKey(credential.id)) {
+					index(credential);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void written(CustomerType role, int id) {
+		generation++;
+		// with no read running, no read can need it.
+		if (runningLoads > 0) {
+			writtenAt.get(role).put(id, generation);
+		}
+	}
+
+	/**
+	 * Starts recording writes for a DB read, until its {@link #endLoad()}.
+	 * @return the generation the read starts at.
+	 */
+	private long beginLoad() {
+		lock.lock();
+		try {
+			runningLoads++;
+			return generation;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void endLoad() {
+		lock.lock();
+		try {
+			runningLoads--;
+			if (runningLoads == 0) {
+				writtenAt.values().forEach(Map::clear);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void index(Credential credential) {
+		List<Credential> credentials = new ArrayList<>(byEmail.getOrDefault(credential.email, Collections.emptyList()));
+		credentials.add(credential);
+		credentials.sort(loginOrder);
+		byEmail.put(credential.email, Collections.unmodifiableList(credentials));
+		emailById.get(credential.role).put(credential.id, credential.email);
+	}
+
+	private void unindex(CustomerType role, int id) {
+		String email = emailById.get(role).remove(id);
+		if (email == null) {
+			return;
+		}
+		List<Credential> credentials = new ArrayList<>(byEmail.getOrDefault(email, Collections.emptyList()));
+		credentials.removeIf(credential -> credential.role == role && credential.id == id);
+		if (credentials.isEmpty()) {
+			byEmail.remove(email);
+		} else {
+			byEmail.put(email, Collections.unmodifiableList(credentials));
+		}
+	}
+
+	/**
+	 * @return a credential holding a new salt and the salted hash of {@code password}.
+	 */
+	protected final Credential credential(CustomerType role, int id, String email, String password) {
+		byte[] salt = new byte[SALT_LENGTH];
+		random.nextBytes(salt);
+		return new Credential(role, id, email, salt, hash(salt, password));
+	}
+
+	private static byte[] hash(byte[] salt, String password) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(salt);
+			return digest.digest(String.valueOf(password).getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256.
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
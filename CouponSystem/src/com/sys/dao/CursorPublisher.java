@@ -0,0 +1,201 @@
+package com.sys.dao;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.database.utils.DbExceptionHandler;
+import com.sys.connection.DbExecutor;
+import com.sys.exception.CouponSystemException;
+
+/**
+ * {@code CursorPublisher}</br></br>
+ * {@code Flow.Publisher} over a DB cursor, for pushing rows to slow subscribers without reading them all first.</br>
+ * Every subscription opens its own cursor, on its first {@code request}, with a DAO's {@code stream}, and reads from it
+ * only as many rows as the subscriber asked for; the driver fetches them {@code fetchSize} at a time.
+ * The cursor, and the pooled connection under it, is released as soon as the subscription completes, fails or is cancelled.</br>
+ * A subscription takes one of the {@link DbExecutor#tryOpenCursor() cursor permits} of the executor while its cursor is open;
+ * it fails with {@code onError} if none is left, or if the cursor cannot get a connection in time.</br></br>
+ * Signals are sent from the {@link DbExecutor}'s threads, one at a time per subscription.
+ *
+ * @param <T> the bean type.
+ */
+public class CursorPublisher<T> implements Flow.Publisher<T> {
+
+	/**
+	 * Opens the cursor of one subscription.
+	 */
+	@FunctionalInterface
+	public interface Cursor<T> {
+		Stream<T> open() throws CouponSystemException;
+	}
+
+	private final Cursor<T> cursor;
+	private final DbExecutor executor;
+
+	/**
+	 * @param cursor - opens the rows, e.g. {@code () -> couponDao.stream(fetchSize, borrowTimeout)};
+	 * it should not wait for a connection without a timeout, since it runs on the executor.
+	 * @param executor - runs the reads and the signals to the subscriber.
+	 */
+	public CursorPublisher(Cursor<T> cursor, DbExecutor executor) {
+		this.cursor = cursor;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		Objects.requireNonNull(subscriber, "subscriber");
+		subscriber.onSubscribe(new CursorSubscription(subscriber));
+	}
+
+	private class CursorSubscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super T> subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		// number of pending drain requests; only the caller that raises it from zero schedules a drain.
+		private final AtomicInteger pending = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile IllegalArgumentException invalidRequest;
+
+		// touched only by the running drain.
+		private Stream<T> rows;
+		private Iterator<T> iterator;
+		private boolean holdsCursor;
+		private boolean done;
+
+		CursorSubscription(Flow.Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException("requested " + n + " rows, must be positive");
+			} else {
+				demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			schedule();
+		}
+
+		private void schedule() {
+			if (pending.getAndIncrement() == 0) {
+				executor.submit(() -> {
+					drain();
+					return null;
+				}).exceptionally(e -> {
+					// the executor refused the drain, so no drain is running and this thread owns the cursor.
+					fail(e);
+					return null;
+				});
+			}
+		}
+
+		private void drain() {
+			int missed = 1;
+			do {
+				if (!done) {
+					emit();
+				}
+				missed = pending.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void emit() {
+			long requested = demand.get();
+			long emitted = 0;
+			try {
+				while (true) {
+					if (cancelled) {
+						done = true;
+						RuntimeException closeError = close();
+						if (closeError != null) {
+							DbExceptionHandler.HandleException(closeError);
+						}
+						return;
+					}
+					if (invalidRequest != null) {
+						fail(invalidRequest);
+						return;
+					}
+					// once demand is met, still complete if that was the last row, rather than holding the cursor until the next request.
+					if (emitted == requested && (iterator == null || iterator.hasNext())) {
+						break;
+					}
+					if (iterator == null) {
+						if (!holdsCursor) {
+							if (!executor.tryOpenCursor()) {
+								fail(new CouponSystemException("Too many open cursors, try again later"));
+								return;
+							}
+							holdsCursor = true;
+						}
+						rows = cursor.open();
+						iterator = rows.iterator();
+					}
+					if (!iterator.hasNext()) {
+						done = true;
+						RuntimeException closeError = close();
+						if (closeError != null) {
+							subscriber.onError(closeError);
+						} else {
+							subscriber.onComplete();
+						}
+						return;
+					}
+					subscriber.onNext(iterator.next());
+					emitted++;
+				}
+			} catch (CouponSystemException | RuntimeException e) {
+				fail(e);
+				return;
+			}
+			if (requested != Long.MAX_VALUE) {
+				demand.addAndGet(-emitted);
+			}
+		}
+
+		private void fail(Throwable e) {
+			if (done) {
+				return;
+			}
+			done = true;
+			RuntimeException closeError = close();
+			if (closeError != null) {
+				e.addSuppressed(closeError);
+			}
+			subscriber.onError(e);
+		}
+
+		/**
+		 * @return the error closing the cursor, if any.
+		 */
+		private RuntimeException close() {
+			Stream<T> open = rows;
+			rows = null;
+			iterator = null;
+			try {
+				if (open != null) {
+					open.close();
+				}
+			} catch (RuntimeException e) {
+				return e;
+			} finally {
+				if (holdsCursor) {
+					holdsCursor = false;
+					executor.closeCursor();
+				}
+			}
+			return null;
+		}
+	}
+
+}
@@ -9,165 +9,326 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import com.sys.beans.Coupon;
 import com.sys.beans.Customer;
-import com.sys.connection.ConnectionPool;
+import com.sys.beans.CustomerType;
+import com.sys.connection.UnitOfWork;
 import com.sys.exception.ConnectionException;
 import com.sys.exception.CouponException;
+import com.sys.exception.CouponSystemException;
 import com.sys.exception.CustomerException;
 
 public class CustomerDBDAO implements UserDAO<Customer> {
 
-	private Connection connection;
 
 	private static String sqlCreate = "insert into customers (first_name,last_name,password,email) VALUES(?,?,?,?)";
 	private static String sqlRead = "select * from customers where id = ?";
-	private static String sqlUpdate = "update customers set first_name = ? , last_name = ? , password = ? , email = ? WHERE id = ?";
+	private static String sqlUpdate = "update customers set first_name = ? , last_name = ? , password = ? , email = ? , "
+			+ "version = version + 1 WHERE id = ? and version = ?";
+	private static String sqlReadVersion = "select version from customers where id = ?";
 	private static String sqlDelete = "delete from customers where id = ?";
+	private static String sqlReadAll = "select * from customers";
+	private static String sqlReadPage = "select * from customers where id > ? order by id fetch first ? rows only";
+	private static String sqlExists = "select * from customers where email = ? and password = ?";
+	private static String sqlGetIdByEmail = "select id from customers where email = ?";
 	
+	private static final RowMappers<Customer> customerMappers = new RowMappers<>(CustomerDBDAO::compileMapper);
+
 	private CouponDBDAO couponDao;
 	
 	
 	
+	private CredentialIndex credentials;
+
 	public CustomerDBDAO(CouponDBDAO couponDao) {
 		super();
 		this.couponDao = couponDao;
 	}
 
+/**
+ * @param credentials - index to keep up to date with the email and password of every customer this DAO creates, updates or deletes.
+ */
+	public CustomerDBDAO(CouponDBDAO couponDao, CredentialIndex credentials) {
+		this(couponDao);
+		this.credentials = credentials;
+	}
+
 	@Override
 	public boolean exists(String email, String password) throws CustomerException {
 		boolean result = false;
-		connect();
 		if (email.isEmpty() || password.isEmpty()) {
 			throw new CustomerException("Password or Email were empty");
 		}
-		try (Statement stmt = connection.createStatement()) {
-			String sql = "select * from customers where email = '" + email + "'" + " , password = '" + password + "'";
-			ResultSet rs = stmt.executeQuery(sql);
+		Connection connection = connect();
+		try (PreparedStatement stmt = connection.prepareStatement(sqlExists)) {
+			stmt.setString(1, email);
+			stmt.setString(2, password);
+			ResultSet rs = stmt.executeQuery();
 			result = rs.next();
 		} catch (SQLException e) {
 			throw new CustomerException("error in checking if customer exists", e);
 		}
 		finally {
-			disconnect();
+			disconnect(connection);
 		}
 
 		return result;
 	}
 
+/**
+ * {@code create}</br></br>
+ * Inserts the customer and sets its {@code id} to the one the DB generated, read back with the insert's generated keys.
+ * @return the same customer, with its id.
+ */
 	@Override
-	public void create(Customer customer) throws CustomerException {
+	public Customer create(Customer customer) throws CustomerException {
 		// "insert into customers (first_name,last_name,password,email) VALUES(?,?,?,?)"
-		connect();
-		try (PreparedStatement create = connection.prepareStatement(sqlCreate)) {
+		Connection connection = connect();
+		try (PreparedStatement create = connection.prepareStatement(sqlCreate, Statement.RETURN_GENERATED_KEYS)) {
 			create.setString(1, customer.getFirstName());
 			create.setString(2, customer.getLastName());
 			create.setString(3, customer.getPassword());
 			create.setString(4, customer.getEmail());
 			create.execute();
+			try (ResultSet keys = create.getGeneratedKeys()) {
+				if (keys.next()) {
+					customer.setId(keys.getInt(1));
+				}
+			}
+			indexCredentials(customer);
 		} catch (SQLException e) {
 			throw new CustomerException("error in creating customer", e);
 		} finally {
-			disconnect();
+			disconnect(connection);
 		}
+		return customer;
 	}
 
+/**
+ * {@code read}</br></br>
+ * Reads the customer without its coupons; they are read on the first {@code getCoupons}.
+ * @see #read(int, FetchMode)
+ */
 	@Override
 	public Customer read(int id) throws CustomerException {
+		return read(id, FetchMode.LAZY);
+	}
+
+/**
+ * {@code read}</br></br>
+ * @param id - the customer's id.
+ * @param fetchMode - {@link FetchMode#WITH_COUPONS WITH_COUPONS} to read the purchased coupons right away.
+ * @return the customer, or {@code null} if there is no customer with this id.
+ * @throws CustomerException
+ */
+	public Customer read(int id, FetchMode fetchMode) throws CustomerException {
 		// "select * from customers where id = ?"
 		Customer result = null;
+		Connection connection = connect();
 		try {
-			connect();
-			result = readFromConnection(id);
+			result = readFromConnection(connection, id);
 		} finally {
-			disconnect();
+			disconnect(connection);
+		}
+		if (result != null) {
+			fetchCoupons(result, fetchMode);
 		}
 		return result;
 	}
 
+	private Customer withLazyCoupons(Customer customer) {
+		customer.setCouponLoader(() -> new ArrayList<>(couponDao.readAll(customer)));
+		return customer;
+	}
+
+	private void fetchCoupons(Customer customer, FetchMode fetchMode) throws CustomerException {
+		if (fetchMode == FetchMode.LAZY) {
+			withLazyCoupons(customer);
+			return;
+		}
+		try {
+			customer.setCoupons(new ArrayList<>(couponDao.readAll(customer)));
+		} catch (CouponException e) {
+			throw new CustomerException("error in reading coupons of customer", e, customer);
+		}
+	}
+
 	@Override
-	public void update(Customer customer) throws CustomerException {
+	public UpdateResult update(Customer customer) throws CustomerException {
+		UpdateResult result;
 		// "update customers set first_name = ?
-		// , last_name = ? , password = ? , email = ? WHERE id = ?"
-		connect();
+		// , last_name = ? , password = ? , email = ? , version = version + 1 WHERE id = ? and version = ?"
+		Connection connection = connect();
 		try (PreparedStatement update = connection.prepareStatement(sqlUpdate)) {
-//			Customer customer = readFromConnection(id);
+//			Customer customer = readFromConnection(connection, id);
 			update.setString(1, customer.getFirstName());
 			update.setString(2, customer.getLastName());
 			update.setString(3, customer.getPassword());
 			update.setString(4, customer.getEmail());
 			update.setInt(5, customer.getId());
-			update.execute();
+			update.setInt(6, customer.getVersion());
+			result = UpdateResult.of(update.executeUpdate(), connection, sqlReadVersion, customer.getId());
+			if (result == UpdateResult.UPDATED) {
+				customer.setVersion(customer.getVersion() + 1);
+				indexCredentials(customer);
+			}
 		} catch (SQLException e) {
 			throw new CustomerException("error in updating customer", e);
 		}
 		finally {
-			disconnect();
+			disconnect(connection);
 		}
 
+		return result;
 	}
 
 	@Override
 	public void delete(int id) throws CustomerException {
-		connect();
+		Connection connection = connect();
 //		deleteCustomerHistory(id);
 
 		try (PreparedStatement delete = connection.prepareStatement(sqlDelete)) {
 			delete.setInt(1, id);
 			delete.execute();
+			if (credentials != null) {
+				UnitOfWork.afterCommit(() -> credentials.remove(CustomerType.CUSTOMER, id));
+			}
 		} catch (SQLException e) {
 			throw new CustomerException("error in deleting customer", e);
 		} finally {
-			disconnect();
+			disconnect(connection);
 		}
 	}
 
+/**
+ * {@code readAll}</br></br>
+ * Reads the customers without their coupons; each customer reads its own on the first {@code getCoupons}.
+ * @see #readAll(FetchMode)
+ */
 	@Override
 	public Collection<Customer> readAll() throws CustomerException {
+		return readAll(FetchMode.LAZY);
+	}
+
+/**
+ * {@code readAll}</br></br>
+ * With {@link FetchMode#WITH_COUPONS WITH_COUPONS}, reads the customers and all purchased coupons with two queries
+ * in one {@link UnitOfWork}, and hands each customer its coupons from {@link CouponDBDAO#readAllByCustomer() readAllByCustomer}.
+ * With {@link FetchMode#LAZY LAZY}, reads only the customers, with a single query and no transaction.
+ * @param fetchMode - whether to read the coupons now or on first access.
+ * @throws CustomerException
+ */
+	public Collection<Customer> readAll(FetchMode fetchMode) throws CustomerException {
+		if (fetchMode == FetchMode.LAZY) {
+			List<Customer> result = readAllCustomers();
+			for (Customer customer : result) {
+				withLazyCoupons(customer);
+			}
+			return result;
+		}
+
+		try (UnitOfWork work = UnitOfWork.begin()) {
+			List<Customer> result = readAllCustomers();
+			Map<Integer, List<Coupon>> coupons = couponDao.readAllByCustomer();
+			for (Customer customer : result) {
+				customer.setCoupons(coupons.getOrDefault(customer.getId(), new ArrayList<>()));
+			}
+			work.commit();
+			return result;
+		} catch (ConnectionException e) {
+			throw new CustomerException("error in reading all customers", e);
+		} catch (CouponException e) {
+			throw new CustomerException("error in reading coupons of customers", e);
+		}
+	}
+
+	private List<Customer> readAllCustomers() throws CustomerException {
 		List<Customer> result = new ArrayList<>();
-		connect();
-		String sqlReadAll = "select * from customers";
-		try (Statement readAll = connection.createStatement()) {
-			ResultSet rs = readAll.executeQuery(sqlReadAll);
+		Connection connection = connect();
+		try (PreparedStatement readAll = connection.prepareStatement(sqlReadAll)) {
+			ResultSet rs = readAll.executeQuery();
+			RowMapper<Customer> mapper = customerMappers.forQuery(sqlReadAll);
 			while (rs.next()) {
-				result.add(createCustomer(rs.getInt("id"), rs));
+				result.add(mapper.map(rs));
 			}
 
 		} catch (SQLException e) {
 			throw new CustomerException("error in reading all customers", e);
 		} finally {
-			disconnect();
+			disconnect(connection);
 		}
 		return result;
 	}
 
-	private synchronized void connect() throws CustomerException {
-		if (connection == null) {
-			try {
-				connection = ConnectionPool.getInstance().getConnection();
-			} catch (ConnectionException e) {
-				throw new CustomerException("error in connecting", e);
-			}
+/**
+ * {@code stream}</br></br>
+ * The customers come without their coupons; each reads its own on the first {@code getCoupons}.
+ */
+	@Override
+	public Stream<Customer> stream(int fetchSize) throws CustomerException {
+		Connection connection = connect();
+		try {
+			RowMapper<Customer> mapper = customerMappers.forQuery(sqlReadAll);
+			return ResultSetStream.open(connection, sqlReadAll, fetchSize, rs -> withLazyCoupons(mapper.map(rs)), () -> disconnect(connection));
+		} catch (SQLException e) {
+			disconnect(connection);
+			throw new CustomerException("error in streaming all customers", e);
+		}
+	}
+
+/**
+ * {@code readPage}</br></br>
+ * The customers come without their coupons; each reads its own on the first {@code getCoupons}.
+ */
+	@Override
+	public Page<Customer> readPage(String token, int pageSize) throws CustomerException {
+		Connection connection = connect();
+		try {
+			RowMapper<Customer> mapper = customerMappers.forQuery(sqlReadPage);
+			return KeysetQuery.readPage(connection, sqlReadPage, token, pageSize, rs -> withLazyCoupons(mapper.map(rs)), Customer::getId);
+		} catch (SQLException | IllegalArgumentException e) {
+			throw new CustomerException("error in reading a page of customers", e);
+		} finally {
+			disconnect(connection);
+		}
+	}
+
+	private void indexCredentials(Customer customer) {
+		if (credentials != null) {
+			int id = customer.getId();
+			String email = customer.getEmail();
+			String password = customer.getPassword();
+			UnitOfWork.afterCommit(() -> credentials.put(CustomerType.CUSTOMER, id, email, password));
+		}
+	}
+
+	private Connection connect() throws CustomerException {
+		try {
+			return UnitOfWork.getConnection();
+		} catch (ConnectionException e) {
+			throw new CustomerException("error in connecting", e);
 		}
 	}
 
-	private synchronized void disconnect() throws CustomerException {
+	private void disconnect(Connection connection) throws CustomerException {
 		try {
-			ConnectionPool.getInstance().restoreConnection(connection);
+			UnitOfWork.restoreConnection(connection);
 		} catch (ConnectionException e) {
 			throw new CustomerException("error in disconnecting", e);
 		}
-		connection = null;
 	}
 
-	private Customer readFromConnection(int id) throws CustomerException {
+	private Customer readFromConnection(Connection connection, int id) throws CustomerException {
 		Customer result = null;
 		try (PreparedStatement read = connection.prepareStatement(sqlRead)) {
 			read.setInt(1, id);
 			ResultSet rs = read.executeQuery();
+			RowMapper<Customer> mapper = customerMappers.forQuery(sqlRead);
 			if (rs.next()) {
-				result = createCustomer(id, rs);
+				result = mapper.map(rs);
 			}
 
 		} catch (SQLException e) {
@@ -176,39 +337,45 @@ public class CustomerDBDAO implements UserDAO<Customer> {
 		return result;
 	}
 
-	private Customer createCustomer(int id, ResultSet rs) throws CustomerException {
-		Customer result;
-		result = new Customer(id);
-		try {
-			result.setFirstName(rs.getString("first_name"));
-		result.setLastName(rs.getString("last_name"));
-		result.setEmail(rs.getString("email"));
-		result.setPassword(rs.getString("password"));
-		result.setCoupons((List<Coupon>) couponDao.readAll(result));
-		} catch (SQLException | CouponException e) {
-			throw new CustomerException("error in reading customer",e);
-		}
-		return result;
+	private static RowMapper<Customer> compileMapper(RowMappers.Columns columns) throws SQLException {
+		int id = columns.of("id");
+		int firstName = columns.of("first_name");
+		int lastName = columns.of("last_name");
+		int email = columns.of("email");
+		int password = columns.of("password");
+		int version = columns.of("version");
+		return rs -> {
+			Customer result = new Customer();
+			result.setId(rs.getInt(id));
+			result.setFirstName(rs.getString(firstName));
+			result.setLastName(rs.getString(lastName));
+			result.setEmail(rs.getString(email));
+			result.setPassword(rs.getString(password));
+			result.setVersion(rs.getInt(version));
+			return result;
+		};
 	}
 
+
+/**
+ * {@code getIdByEmail}</br></br>
+ * @return the id of the customer with this email, or -1 if there is none.
+ */
 	@Override
 	public int getIdByEmail(String email) throws CustomerException {
 		int id = -1;
-		try (Statement stmt = connection.createStatement()) {
-			String sql = "select * from customers where email = '" + email + "'";
-			ResultSet rs = stmt.executeQuery(sql);
+		Connection connection = connect();
+		try (PreparedStatement stmt = connection.prepareStatement(sqlGetIdByEmail)) {
+			stmt.setString(1, email);
+			ResultSet rs = stmt.executeQuery();
 			if (rs.next()) {
 				id = rs.getInt("id");
 			}
 		} catch (SQLException e) {
 			throw new CustomerException("error in getting customer id by email", e);
 		} finally {
-			disconnect();
-		}
-		if (id == -1) {
-			throw new CustomerException("email not found");
+			disconnect(connection);
 		}
-
 		return id;
 	}
 }
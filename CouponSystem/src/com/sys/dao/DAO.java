@@ -1,6 +1,7 @@
 package com.sys.dao;
 
 import java.util.Collection;
+import java.util.stream.Stream;
 
 import com.sys.exception.CouponSystemException;
 
@@ -18,9 +19,10 @@ public interface DAO <T>{
 	 * {@code create}</br></br>
 	 * Method used to write data into the DB.
 	 * @param Generic type object.
+	 * @return the same object, with the {@code id} the DB generated for it.
 	 * @throws CouponSystemException
 	 */
-	void create(T t) throws CouponSystemException;
+	T create(T t) throws CouponSystemException;
 
 	/**
 	 * {@code read}</br></br>
@@ -32,11 +34,14 @@ public interface DAO <T>{
 
 	/**
 	 * {@code update}</br></br>
-	 * Used to update entries in the DB.
+	 * Used to update entries in the DB.</br>
+	 * Optimistic: the entry is written only if its version in the DB is still the object's version,
+	 * and no lock is held between the read that produced the object and this write.
 	 * @param Generic type object.
+	 * @return {@link UpdateResult#CONFLICT CONFLICT} if the entry changed since it was read, {@link UpdateResult#NOT_FOUND NOT_FOUND} if it is gone.
 	 * @throws CouponSystemException
 	 */
-	void update(T t) throws CouponSystemException;
+	UpdateResult update(T t) throws CouponSystemException;
 
 	/**
 	 * {@code delete}</br></br>
@@ -54,6 +59,26 @@ public interface DAO <T>{
 	 */
 	Collection<T> readAll() throws CouponSystemException;
 
+	/**
+	 * {@code stream}</br></br>
+	 * Like {@code readAll}, but reads the objects from the DB as the stream is consumed, instead of all at once.</br>
+	 * The stream holds a connection until it is closed, so use it in a try-with-resources block.
+	 * @param fetchSize - number of rows to read from the DB per round trip.
+	 * @return a Stream of Objects.
+	 * @throws CouponSystemException
+	 */
+	Stream<T> stream(int fetchSize) throws CouponSystemException;
+
+	/**
+	 * {@code readPage}</br></br>
+	 * Reads one page of the objects, in {@code id} order.
+	 * @param token - {@code null} for the first page, then the {@link Page#getNextToken() token} of the previous page.
+	 * @param pageSize - the maximum number of objects on the page.
+	 * @return the page, with the token for the next one.
+	 * @throws CouponSystemException
+	 */
+	Page<T> readPage(String token, int pageSize) throws CouponSystemException;
+
 
 
 }
@@ -21,16 +21,26 @@ public interface ElementDAO<T> extends DAO<T> {
 	 * @throws CouponSystemException
 	 */
 	boolean exists(int customerId, int couponId) throws CouponSystemException;
+	/**
+	 * {@code purchase}</br></br>
+	 * Atomically takes one coupon out of stock and records it as purchased by the customer, in one transaction.</br>
+	 * Stock is decremented in the DB only while it is above zero, so concurrent buyers never oversell.
+	 * @param {@code customerId}
+	 * @param {@code couponId}
+	 * @return {@link PurchaseResult#PURCHASED PURCHASED}, or the reason the purchase was refused.
+	 * @throws CouponSystemException
+	 */
+	PurchaseResult purchase(int customerId, int couponId) throws CouponSystemException;
 	/**
 	 * {@code addPurchase}</br></br>
-	 * Adds a Coupon purchase to the customer entry in the DB.
+	 * Takes one coupon out of stock, if any is left.
 	 * @param {{@code couponId} for the purchased coupon.
 	 * @throws CouponSystemException
 	 */
 	void addPurchase(int couponId) throws CouponSystemException;
 	/**
 	 * {@code deletePurchase}</br></br>
-	 * Removes a coupon from the customer entry in the DB.
+	 * Puts one coupon back in stock.
 	 * @param {@ code couponId} for the coupon returned/refunded.
 	 * @throws CouponSystemException
 	 */
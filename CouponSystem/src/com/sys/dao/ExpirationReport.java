@@ -0,0 +1,50 @@
+package com.sys.dao;
+
+import java.time.Duration;
+
+/**
+ * {@code ExpirationReport}</br></br>
+ * What one run of {@link CouponDBDAO#deleteExpired(java.util.Date, int) deleteExpired} removed, and how long it took.
+ *
+ */
+public class ExpirationReport {
+
+	private final int couponsDeleted;
+	private final int purchasesDeleted;
+	private final int chunks;
+	private final Duration elapsed;
+
+	public ExpirationReport(int couponsDeleted, int purchasesDeleted, int chunks, Duration elapsed) {
+		super();
+		this.couponsDeleted = couponsDeleted;
+		this.purchasesDeleted = purchasesDeleted;
+		this.chunks = chunks;
+		this.elapsed = elapsed;
+	}
+
+	public int getCouponsDeleted() {
+		return couponsDeleted;
+	}
+
+	public int getPurchasesDeleted() {
+		return purchasesDeleted;
+	}
+
+	/**
+	 * @return number of transactions the deletion was split into.
+	 */
+	public int getChunks() {
+		return chunks;
+	}
+
+	public Duration getElapsed() {
+		return elapsed;
+	}
+
+	@Override
+	public String toString() {
+		return "ExpirationReport [couponsDeleted=" + couponsDeleted + ", purchasesDeleted=" + purchasesDeleted
+				+ ", chunks=" + chunks + ", elapsed=" + elapsed.toMillis() + "ms]";
+	}
+
+}
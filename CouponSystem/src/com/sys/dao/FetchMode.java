@@ -0,0 +1,17 @@
+package com.sys.dao;
+
+/**
+ * {@code FetchMode}</br></br>
+ * Whether a {@link CompanyDBDAO} or {@link CustomerDBDAO} read also reads the coupons.
+ *
+ */
+public enum FetchMode {
+	/**
+	 * The coupons are read on the first call to {@code getCoupons}, with one more query.
+	 */
+	LAZY,
+	/**
+	 * The coupons are read together with the company or customer.
+	 */
+	WITH_COUPONS
+}
@@ -0,0 +1,63 @@
+package com.sys.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * {@code KeysetQuery}</br></br>
+ * Reads one {@link Page} with a query of the form
+ * {@code ... where <keys> and id > ? order by id fetch first ? rows only}.</br>
+ * Asks for one row more than the page size, to know whether there is a next page without a count query.
+ *
+ */
+final class KeysetQuery {
+
+	private KeysetQuery() {
+	}
+
+	/**
+	 * {@code readPage}</br></br>
+	 * @param connection - the connection to read on.
+	 * @param sql - the query; its last two parameters are the id to start after and the number of rows.
+	 * @param token - the token of the page to read, {@code null} for the first page.
+	 * @param pageSize - the maximum number of items on the page.
+	 * @param mapper - turns a row into a bean.
+	 * @param idOf - the id of a bean, to make the next token from.
+	 * @param keys - values for the query's parameters before the id, e.g. a company id.
+	 * @throws IllegalArgumentException if the token is not valid or the page size is below 1.
+	 */
+	static <T> Page<T> readPage(Connection connection, String sql, String token, int pageSize, RowMapper<T> mapper,
+			ToIntFunction<T> idOf, int... keys) throws SQLException {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("page size must be at least 1: " + pageSize);
+		}
+		int afterId = Page.idAfter(token);
+
+		List<T> items = new ArrayList<>(pageSize + 1);
+		try (PreparedStatement read = connection.prepareStatement(sql)) {
+			int index = 1;
+			for (int key : keys) {
+				read.setInt(index++, key);
+			}
+			read.setInt(index++, afterId);
+			read.setInt(index, pageSize + 1);
+			ResultSet rs = read.executeQuery();
+			while (rs.next()) {
+				items.add(mapper.map(rs));
+			}
+		}
+
+		String nextToken = null;
+		if (items.size() > pageSize) {
+			items.remove(pageSize);
+			nextToken = Page.tokenAfter(idOf.applyAsInt(items.get(pageSize - 1)));
+		}
+		return new Page<>(items, nextToken);
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.sys.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@code Page}</br></br>
+ * One page of a listing, in {@code id} order, and the token to ask for the next page with.</br>
+ * The token is opaque to callers; it carries the last {@code id} on the page,
+ * so the next page is read with {@code where id > ?} on the primary key instead of an {@code OFFSET},
+ * and every page costs the same however deep it is.
+ *
+ * @param <T> the bean type.
+ */
+public class Page<T> {
+
+	private static final String TOKEN_PREFIX = "id>";
+
+	private final List<T> items;
+	private final String nextToken;
+
+	Page(List<T> items, String nextToken) {
+		this.items = Collections.unmodifiableList(items);
+		this.nextToken = nextToken;
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * @return the token for the next page, or {@code null} if this is the last page.
+	 */
+	public String getNextToken() {
+		return nextToken;
+	}
+
+	public boolean hasNext() {
+		return nextToken != null;
+	}
+
+	static String tokenAfter(int id) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((TOKEN_PREFIX + id).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param token - a token from {@link #getNextToken()}, or {@code null} for the first page.
+	 * @return the last id of the previous page.
+	 * @throws IllegalArgumentException if the token was not made by {@link #tokenAfter(int)}.
+	 */
+	static int idAfter(String token) {
+		if (token == null || token.isEmpty()) {
+			return 0;
+		}
+		String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+		if (!decoded.startsWith(TOKEN_PREFIX)) {
+			throw new IllegalArgumentException("invalid page token: " + token);
+		}
+		return Integer.parseInt(decoded.substring(TOKEN_PREFIX.length()));
+	}
+
+	@Override
+	public String toString() {
+		return "Page [items=" + items + ", nextToken=" + nextToken + "]";
+	}
+
+}
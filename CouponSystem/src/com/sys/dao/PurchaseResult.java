@@ -0,0 +1,14 @@
+package com.sys.dao;
+
+/**
+ * 
+ * ENUM for the outcome of {@link ElementDAO#purchase(int, int) purchase}.
+ *
+ */
+public enum PurchaseResult {
+PURCHASED,
+OUT_OF_STOCK,
+EXPIRED,
+ALREADY_PURCHASED,
+NOT_FOUND;
+}
@@ -0,0 +1,95 @@
+package com.sys.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.sys.connection.ConnectionPool;
+import com.sys.exception.CouponSystemException;
+
+/**
+ * {@code ResultSetStream}</br></br>
+ * Runs a query and returns its rows as a {@code Stream} that reads them from the cursor as it is consumed,
+ * {@code fetchSize} rows per round trip, so only those rows are on the heap at a time.</br>
+ * Closing the stream closes the statement and gives the connection back.
+ * Until then the connection is {@link ConnectionPool#exemptFromLeakDetection(java.sql.Connection) exempt} from the pool's leak threshold,
+ * since a stream may be read slowly.
+ * Errors while reading a row surface as {@code IllegalStateException}, since a stream cannot throw checked exceptions.
+ *
+ */
+final class ResultSetStream {
+
+	/**
+	 * Gives the connection back; called once, when the stream is closed.
+	 */
+	@FunctionalInterface
+	interface Release {
+		void release() throws CouponSystemException;
+	}
+
+	private ResultSetStream() {
+	}
+
+	/**
+	 * {@code open}</br></br>
+	 * @param connection - the connection the query runs on; it stays in use until the stream is closed.
+	 * @param sql - the query.
+	 * @param fetchSize - rows to read per round trip.
+	 * @param mapper - turns a row into a bean.
+	 * @param release - gives the connection back.
+	 * @return the rows, to be used in a try-with-resources block.
+	 * @throws SQLException if the query cannot run; the caller still owns the connection then.
+	 */
+	static <T> Stream<T> open(Connection connection, String sql, int fetchSize, RowMapper<T> mapper, Release release)
+			throws SQLException {
+		ConnectionPool.exemptFromLeakDetection(connection);
+		// not prepareStatement(sql): that one is cached per connection and the fetch size would stick to it.
+		PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY);
+		ResultSet rs;
+		try {
+			statement.setFetchSize(fetchSize);
+			rs = statement.executeQuery();
+		} catch (SQLException e) {
+			statement.close();
+			throw e;
+		}
+
+		Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
+				try {
+					if (!rs.next()) {
+						return false;
+					}
+					action.accept(mapper.map(rs));
+					return true;
+				} catch (SQLException e) {
+					throw new IllegalStateException("error in reading the next row of: " + sql, e);
+				}
+			}
+		};
+
+		return StreamSupport.stream(rows, false).onClose(() -> {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				throw new IllegalStateException("error in closing the statement of: " + sql, e);
+			} finally {
+				try {
+					release.release();
+				} catch (CouponSystemException e) {
+					throw new IllegalStateException("error in restoring the connection", e);
+				}
+			}
+		});
+	}
+
+}
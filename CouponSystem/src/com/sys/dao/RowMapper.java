@@ -0,0 +1,17 @@
+package com.sys.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@code RowMapper}</br></br>
+ * Turns the current row of a {@code ResultSet} into a bean.
+ *
+ * @param <T> the bean type.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+	T map(ResultSet rs) throws SQLException;
+
+}
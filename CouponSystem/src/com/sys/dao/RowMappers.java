@@ -0,0 +1,94 @@
+package com.sys.dao;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code RowMappers}</br></br>
+ * Row mappers compiled for each query shape: the first time a query is read, its column positions are looked up by name
+ * in the {@code ResultSetMetaData}, and the mapper compiled for them reads every later row, of every later run, by index.</br>
+ * Keyed by SQL text, since the same text always returns the same columns.
+ *
+ * @param <T> the bean type.
+ */
+public class RowMappers<T> {
+
+	/**
+	 * Compiles a mapper for the columns of one query shape.
+	 */
+	@FunctionalInterface
+	public interface Compiler<T> {
+		RowMapper<T> compile(Columns columns) throws SQLException;
+	}
+
+	/**
+	 * Column positions of one query shape, by lower-case column label.
+	 */
+	public static class Columns {
+		private final Map<String, Integer> indexes = new HashMap<>();
+
+		Columns(ResultSetMetaData metaData) throws SQLException {
+			for (int i = metaData.getColumnCount(); i >= 1; i--) {
+				// a label repeated in a join resolves to its first column.
+				indexes.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+			}
+		}
+
+		/**
+		 * @return the 1-based position of the column.
+		 * @throws SQLException if the query has no such column.
+		 */
+		public int of(String label) throws SQLException {
+			Integer index = indexes.get(label);
+			if (index == null) {
+				throw new SQLException("no column " + label + " in " + indexes.keySet());
+			}
+			return index;
+		}
+	}
+
+	private final Compiler<T> compiler;
+	private final Map<String, RowMapper<T>> bySql = new ConcurrentHashMap<>();
+
+	public RowMappers(Compiler<T> compiler) {
+		this.compiler = compiler;
+	}
+
+	/**
+	 * {@code forQuery}</br></br>
+	 * @param sql - the query the rows come from.
+	 * @return a mapper for the rows of one run of {@code sql}; it finds the compiled mapper on its first row,
+	 * so it must not be shared between runs of different queries.
+	 */
+	public RowMapper<T> forQuery(String sql) {
+		return new RowMapper<T>() {
+			private RowMapper<T> compiled;
+
+			@Override
+			public T map(ResultSet rs) throws SQLException {
+				if (compiled == null) {
+					compiled = compiled(sql, rs);
+				}
+				return compiled.map(rs);
+			}
+		};
+	}
+
+	private RowMapper<T> compiled(String sql, ResultSet rs) throws SQLException {
+		RowMapper<T> result = bySql.get(sql);
+		if (result == null) {
+			result = compiler.compile(new Columns(rs.getMetaData()));
+			RowMapper<T> existing = bySql.putIfAbsent(sql, result);
+			if (existing != null) {
+				result = existing;
+			}
+		}
+		return result;
+	}
+
+}
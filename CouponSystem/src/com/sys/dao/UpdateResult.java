@@ -0,0 +1,43 @@
+package com.sys.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@code UpdateResult}</br></br>
+ * Outcome of an optimistic {@code update}: the row is written only if its {@code version} is still the one the caller read.
+ *
+ */
+public enum UpdateResult {
+	/**
+	 * The row was written, and the bean's version advanced to the row's new version.
+	 */
+	UPDATED,
+	/**
+	 * Someone else changed the row since it was read; nothing was written. Read it again and retry.
+	 */
+	CONFLICT,
+	/**
+	 * There is no row with this id.
+	 */
+	NOT_FOUND;
+
+	/**
+	 * {@code of}</br></br>
+	 * Tells a conflict from a missing row when a conditional update wrote nothing.
+	 * @param rows - rows the {@code ... where id = ? and version = ?} update wrote.
+	 * @param sqlExists - a query that finds the row by id.
+	 */
+	static UpdateResult of(int rows, Connection connection, String sqlExists, int id) throws SQLException {
+		if (rows > 0) {
+			return UPDATED;
+		}
+		try (PreparedStatement exists = connection.prepareStatement(sqlExists)) {
+			exists.setInt(1, id);
+			ResultSet rs = exists.executeQuery();
+			return rs.next() ? CONFLICT : NOT_FOUND;
+		}
+	}
+}
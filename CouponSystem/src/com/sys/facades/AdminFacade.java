@@ -1,15 +1,19 @@
 package com.sys.facades;
 
 import java.util.Collection;
-import java.util.List;
 
 import com.sys.beans.Company;
 import com.sys.beans.Coupon;
 import com.sys.beans.Customer;
+import com.sys.connection.UnitOfWork;
 import com.sys.dao.CompanyDBDAO;
 import com.sys.dao.CouponDBDAO;
 import com.sys.dao.CustomerDBDAO;
+import com.sys.dao.FetchMode;
+import com.sys.dao.Page;
+import com.sys.dao.UpdateResult;
 import com.sys.exception.CompanyException;
+import com.sys.exception.ConnectionException;
 import com.sys.exception.CouponException;
 import com.sys.exception.CustomerException;
 
@@ -33,76 +37,140 @@ private CouponDBDAO couponDao;
 		return (email.equals(correctEmail) && password.equals(correctPassword));
 	}
 
-	public void addCompany(Company company) throws CompanyException {
-		if (companyDao.read(companyDao.getIdByEmail(company.getEmail())) != null) {
-			throw new CompanyException("Company with same email already exists");
-		}
-		List<Company> allCompanies = (List<Company>) companyDao.readAll();
-
-		for (Company companyToCheck : allCompanies) {
-			if (company.getName().equalsIgnoreCase(companyToCheck.getName())) {
+/**
+ * {@code addCompany}</br></br>
+ * @return the new company, with the id the DB gave it.
+ */
+	public Company addCompany(Company company) throws CompanyException {
+		try (UnitOfWork work = UnitOfWork.begin()) {
+			if (companyDao.getIdByEmail(company.getEmail()) != -1) {
+				throw new CompanyException("Company with same email already exists");
+			}
+			if (companyDao.existsByName(company.getName())) {
 				throw new CompanyException("Company with same name already exists");
 			}
+			Company created = companyDao.create(company);
+			work.commit();
+			return created;
+		} catch (ConnectionException e) {
+			throw new CompanyException("error in adding company", e, company);
 		}
-		companyDao.create(company);
 	}
 
-	public void updateCompany(Company company) throws CompanyException {
+/**
+ * {@code updateCompany}</br></br>
+ * @return {@link UpdateResult#CONFLICT CONFLICT}, and nothing is written, if the company changed since it was read.
+ */
+	public UpdateResult updateCompany(Company company) throws CompanyException {
 		Company existingCompany = companyDao.read(company.getId());
+		if (existingCompany == null) {
+			return UpdateResult.NOT_FOUND;
+		}
 
 		if (existingCompany.getId() != company.getId()
 				|| !existingCompany.getName().equalsIgnoreCase(company.getName())) {
 			throw new CompanyException("cannot update company id and name");
 		}
-		companyDao.update(company);
+		return companyDao.update(company);
 	}
 
+/**
+ * {@code deleteCompany}</br></br>
+ * Deletes the company with all the coupons it owns in the DB, and their purchase history, in one transaction.
+ * The coupons are read from the DB, so the {@code company} only needs its id.
+ */
 	public void deleteCompany(Company company) throws CouponException, CompanyException {
-		for (Coupon coupon : company.getCoupons()) {
-			couponDao.delete(coupon.getId());
+		try (UnitOfWork work = UnitOfWork.begin()) {
+			for (Coupon coupon : couponDao.readAll(company)) {
+				couponDao.deleteAllFromHistory(coupon.getId());
+				couponDao.delete(coupon.getId());
+			}
+			companyDao.delete(company.getId());
+			work.commit();
+		} catch (ConnectionException e) {
+			throw new CompanyException("error in deleting company", e, company);
 		}
-		companyDao.delete(company.getId());
 	}
 
 	public Collection<Company> getAllCompanies() throws CompanyException {
-		return companyDao.readAll();
+		return companyDao.readAll(FetchMode.WITH_COUPONS);
+	}
+
+/**
+ * {@code getCompaniesPage}</br></br>
+ * One page of {@link #getAllCompanies()}, without the coupons.
+ * @param token - {@code null} for the first page, then the token of the previous page.
+ */
+	public Page<Company> getCompaniesPage(String token, int pageSize) throws CompanyException {
+		return companyDao.readPage(token, pageSize);
 	}
 
 	public Company getCompanyById(int companyId) throws CompanyException {
-		return companyDao.read(companyId);
+		return companyDao.read(companyId, FetchMode.WITH_COUPONS);
 	}
 
-	public void addCustomer(Customer customer) throws CustomerException {
-		if (customerDao.read(customerDao.getIdByEmail(customer.getEmail())) != null) {
-			throw new CustomerException("Customer exists with the same email");
+/**
+ * {@code addCustomer}</br></br>
+ * @return the new customer, with the id the DB gave it.
+ */
+	public Customer addCustomer(Customer customer) throws CustomerException {
+		try (UnitOfWork work = UnitOfWork.begin()) {
+			if (customerDao.getIdByEmail(customer.getEmail()) != -1) {
+				throw new CustomerException("Customer exists with the same email");
+			}
+			Customer created = customerDao.create(customer);
+			work.commit();
+			return created;
+		} catch (ConnectionException e) {
+			throw new CustomerException("error in adding customer", e, customer);
 		}
-		customerDao.create(customer);
 	}
 
-	public void updateCustomer(Customer customer) throws CustomerException {
+/**
+ * {@code updateCustomer}</br></br>
+ * @return {@link UpdateResult#CONFLICT CONFLICT}, and nothing is written, if the customer changed since it was read.
+ */
+	public UpdateResult updateCustomer(Customer customer) throws CustomerException {
 		Customer existingCustomer = customerDao.read(customer.getId());
+		if (existingCustomer == null) {
+			return UpdateResult.NOT_FOUND;
+		}
 		if (customer.getId() != existingCustomer.getId()) {
 			throw new CustomerException("cannot update customer id");
 		}
-		customerDao.update(customer);
+		return customerDao.update(customer);
 	}
 
 	public void removeCustomer(Customer customer) throws CustomerException {
-		try {
-			couponDao.deleteCouponsOfCustomer(customer.getId());
-		} catch (CouponException e) {
-			throw new CustomerException("error in deleting all coupons of customer",e);
+		try (UnitOfWork work = UnitOfWork.begin()) {
+			try {
+				couponDao.deleteCouponsOfCustomer(customer.getId());
+			} catch (CouponException e) {
+				throw new CustomerException("error in deleting all coupons of customer",e);
+			}
+
+			customerDao.delete(customer.getId());
+			work.commit();
+		} catch (ConnectionException e) {
+			throw new CustomerException("error in removing customer", e, customer);
 		}
-		
-		customerDao.delete(customer.getId());
 	}
 
 	public Collection<Customer> getAllCustomers() throws CustomerException {
-		return customerDao.readAll();
+		return customerDao.readAll(FetchMode.WITH_COUPONS);
+	}
+
+/**
+ * {@code getCustomersPage}</br></br>
+ * One page of {@link #getAllCustomers()}, without the coupons.
+ * @param token - {@code null} for the first page, then the token of the previous page.
+ */
+	public Page<Customer> getCustomersPage(String token, int pageSize) throws CustomerException {
+		return customerDao.readPage(token, pageSize);
 	}
 
 	public Customer returnCustomerById(int customerId) throws CustomerException {
-		return customerDao.read(customerId);
+		return customerDao.read(customerId, FetchMode.WITH_COUPONS);
 	}
 
 }
@@ -1,13 +1,18 @@
 package com.sys.facades;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import com.sys.beans.Category;
 import com.sys.beans.Company;
 import com.sys.beans.Coupon;
+import com.sys.connection.UnitOfWork;
 import com.sys.dao.CompanyDBDAO;
+import com.sys.dao.CouponCriteria;
 import com.sys.dao.CouponDBDAO;
+import com.sys.dao.FetchMode;
+import com.sys.dao.Page;
+import com.sys.dao.UpdateResult;
+import com.sys.exception.ConnectionException;
 import com.sys.exception.CouponException;
 import com.sys.exception.CouponSystemException;
 
@@ -32,26 +37,39 @@ public class CompanyFacade extends ClientFacade{
 			return companyDao.exists(email, password);	
 	}
 	
-	public void addCoupon(Coupon coupon) throws CouponException {
-		
-		List<Coupon> allCoupons = (List<Coupon>) couponDao.readAll(company);
-		//TODO maybe change to a Map<String,Coupon>....
-		for (Coupon couponFromList : allCoupons) {
-			if(couponFromList.getTitle().equalsIgnoreCase(coupon.getTitle())) {
+/**
+ * {@code addCoupon}</br></br>
+ * @return the new coupon, with the id the DB gave it.
+ */
+	public Coupon addCoupon(Coupon coupon) throws CouponException {
+		try (UnitOfWork work = UnitOfWork.begin()) {
+			if (couponDao.titleExists(company.getId(), coupon.getTitle())) {
 				throw new CouponException("Coupon already exists with the same title");
 			}
+			Coupon created = couponDao.create(coupon);
+			work.commit();
+			return created;
+		} catch (ConnectionException e) {
+			throw new CouponException("error in adding coupon", e, coupon);
 		}
-		couponDao.create(coupon);
 	}
 	
-	public void updateCoupon (Coupon coupon) throws CouponException {
+/**
+ * {@code updateCoupon}</br></br>
+ * Reads the coupon and writes it back only if nobody changed it in between; no lock is held between the two.
+ * @return {@link UpdateResult#CONFLICT CONFLICT}, and nothing is written, if the coupon changed since it was read.
+ */
+	public UpdateResult updateCoupon (Coupon coupon) throws CouponException {
 		Coupon existingCoupon = couponDao.read(coupon.getId());
-				
+		if (existingCoupon == null) {
+			return UpdateResult.NOT_FOUND;
+		}
+
 		if (existingCoupon.getCompanyId() != coupon.getCompanyId() 
 				|| existingCoupon.getId() != coupon.getId()) {
 			throw new CouponException("cannot update coupon id and company id");
 		}
-		couponDao.update(coupon);
+		return couponDao.update(coupon);
 	}
 	
 	public void RemoveCoupon (Coupon coupon) throws CouponException {
@@ -66,30 +84,25 @@ public class CompanyFacade extends ClientFacade{
 		return couponDao.readAll(company);
 	}
 	
+/**
+ * {@code returnCouponsPage}</br></br>
+ * One page of {@link #returnAllCoupons()}.
+ * @param token - {@code null} for the first page, then the token of the previous page.
+ */
+	public Page<Coupon> returnCouponsPage(String token, int pageSize) throws CouponException {
+		return couponDao.readPage(company, token, pageSize);
+	}
+
 	public List<Coupon> returnAllCouponsByCategory (Category category) throws CouponException {
-		List<Coupon> coupons = new ArrayList<>();
-		List<Coupon> allCoupons = (List<Coupon>) couponDao.readAll(company);
-		for (Coupon coupon : allCoupons) {
-			if(coupon.getCategory().equals(category)) {
-				coupons.add(coupon);
-			}
-		}
-		return coupons;
+		return couponDao.readAll(new CouponCriteria().ofCompany(company.getId()).inCategory(category));
 	}
 
 	public List<Coupon> returnAllCouponsByMaxPrice (double maxPrice) throws CouponException {
-		List<Coupon> coupons = new ArrayList<>();
-		List<Coupon> allCoupons = (List<Coupon>) couponDao.readAll(company);
-		for (Coupon coupon : allCoupons) {
-			if(coupon.getPrice()<=maxPrice) {
-				coupons.add(coupon);
-			}
-		}
-		return coupons;
+		return couponDao.readAll(new CouponCriteria().ofCompany(company.getId()).maxPrice(maxPrice));
 	}
 	
 	public Company getCompanyDetails () throws CouponSystemException {
-		return companyDao.read(company.getId());
+		return companyDao.read(company.getId(), FetchMode.WITH_COUPONS);
 	}
  
-}
\ No newline at end of file
+}
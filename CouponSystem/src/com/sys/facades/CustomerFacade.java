@@ -1,17 +1,16 @@
 package com.sys.facades;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.TemporalAccessor;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
+import java.util.stream.Stream;
 
 import com.sys.beans.Category;
 import com.sys.beans.Coupon;
 import com.sys.beans.Customer;
+import com.sys.dao.CouponCriteria;
 import com.sys.dao.CouponDBDAO;
 import com.sys.dao.CustomerDBDAO;
+import com.sys.dao.FetchMode;
+import com.sys.dao.Page;
 import com.sys.exception.CouponException;
 import com.sys.exception.CouponSystemException;
 import com.sys.exception.CustomerException;
@@ -19,6 +18,8 @@ import com.sys.exception.CustomerException;
 //revised
 public class CustomerFacade extends ClientFacade {
 
+	private static final int FETCH_SIZE = 100;
+
 	private Customer customer;
 	public Customer getCustomer() {
 		return customer;
@@ -39,66 +40,61 @@ public class CustomerFacade extends ClientFacade {
 	}
 
 	public void purchaseCoupon(int couponId) throws CouponException {
-		Coupon coupon = couponDao.read(couponId);
-		if (couponDao.exists(customer.getId(), coupon.getId())) {
+		switch (couponDao.purchase(customer.getId(), couponId)) {
+		case PURCHASED:
+			return;
+		case ALREADY_PURCHASED:
 			throw new CouponException("Customer already purchased this coupon");
-		}
-		if (coupon.getAmount() == 0) {
+		case OUT_OF_STOCK:
 			throw new CouponException("Coupon out of stock");
-		}
-		if (isToday(coupon.getEndDate())) {
+		case EXPIRED:
 			throw new CouponException("Coupon has expired");
+		case NOT_FOUND:
+		default:
+			throw new CouponException("Coupon not found");
 		}
-		couponDao.addPurchase(coupon.getId());
 	}
 
 	public Collection<Coupon> getAllCopouns()throws CouponSystemException {
 		return couponDao.readAll();
 	}
 	
+/**
+ * {@code getCouponsPage}</br></br>
+ * One page of {@link #getAllCopouns()}.
+ * @param token - {@code null} for the first page, then the token of the previous page.
+ */
+	public Page<Coupon> getCouponsPage(String token, int pageSize) throws CouponException {
+		return couponDao.readPage(token, pageSize);
+	}
+
+/**
+ * {@code streamAllCoupons}</br></br>
+ * Same coupons as {@link #getAllCopouns()}, read from the DB {@value #FETCH_SIZE} at a time as the stream is consumed.
+ * Holds a connection until the stream is closed.
+ */
+	public Stream<Coupon> streamAllCoupons() throws CouponException {
+		return couponDao.stream(FETCH_SIZE);
+	}
+
 	public Collection<Coupon> getAllCopounsOfCustomer()throws CouponSystemException {
 		return couponDao.readAll(customer);
 	}
 
 	public Collection<Coupon> getAllCopounsByMaxPrice(double maxPrice) throws CouponException {
-		Collection<Coupon> coupons = new ArrayList<Coupon>();
-		Collection<Coupon> allCoupons = new ArrayList<Coupon>();
-		
-		allCoupons = couponDao.readAll(customer);
-		for (Coupon coupon : allCoupons) {
-			if (coupon.getPrice() <= maxPrice) {
-				coupons.add(coupon);
-			}
-		}
-		return coupons;
+		return couponDao.readAll(new CouponCriteria().ofCustomer(customer.getId()).maxPrice(maxPrice));
 	}
 
 	public Collection<Coupon> getAllCopounsByCategory(Category category) throws CustomerException {
-
-		Collection<Coupon> coupons = new ArrayList<Coupon>();
-		Collection<Coupon> allCoupons = new ArrayList<Coupon>();
 		try {
-			allCoupons = couponDao.readAll(customer);
-			for (Coupon coupon : allCoupons) {
-				if (coupon.getCategory().equals(category)) {
-					coupons.add(coupon);
-				}
-			}
+			return couponDao.readAll(new CouponCriteria().ofCustomer(customer.getId()).inCategory(category));
 		} catch (CouponException e) {
 			throw new CustomerException("error in getting all coupons by category", e);
 		}
-		return coupons;
 	}
 
 	public Customer getCustomerDetails() throws CustomerException {
-			return customerDao.read(customer.getId());
-	}
-
-	private boolean isToday(Date couponDate) {
-
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-		LocalDate today = LocalDate.now();
-		return (formatter.format(today).equals(formatter.format((TemporalAccessor) couponDate)));
+			return customerDao.read(customer.getId(), FetchMode.WITH_COUPONS);
 	}
 
 }
@@ -0,0 +1,95 @@
+package com.sys.facades;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.sys.exception.CouponSystemException;
+
+/**
+ * {@code FacadeExecutor}</br></br>
+ * Runs facade calls for many concurrent client sessions.</br></br>
+ * In {@link Mode#VIRTUAL VIRTUAL} mode every call gets its own virtual thread. A call waiting for a pooled connection
+ * parks on the pool's {@code Semaphore}, and neither the pool nor the DAOs block inside a monitor,
+ * so waiting sessions do not hold on to carrier threads.
+ * Virtual threads need Java 21; on an older runtime asking for them fails with a {@link CouponSystemException}.</br>
+ * {@link Mode#PLATFORM PLATFORM} mode runs the calls on a fixed pool of ordinary threads.
+ *
+ */
+public class FacadeExecutor implements AutoCloseable {
+
+	public enum Mode {
+		PLATFORM,
+		VIRTUAL;
+	}
+
+	private final Mode mode;
+	private final ExecutorService executor;
+
+	/**
+	 * @param mode - the kind of threads to run facade calls on.
+	 * @param platformThreads - number of threads in {@link Mode#PLATFORM PLATFORM} mode, ignored otherwise.
+	 * @throws CouponSystemException if virtual threads are asked for and the runtime doesn't support them.
+	 */
+	public FacadeExecutor(Mode mode, int platformThreads) throws CouponSystemException {
+		this.mode = mode;
+		this.executor = mode == Mode.VIRTUAL ? newVirtualThreadPerTaskExecutor()
+				: Executors.newFixedThreadPool(platformThreads);
+	}
+
+	/**
+	 * @return True if this runtime can run facades on virtual threads.
+	 */
+	public static boolean isVirtualThreadSupported() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * {@code submit}</br></br>
+	 * Runs one facade call.
+	 * @param call - the call, e.g. {@code () -> facade.purchaseCoupon(couponId)}.
+	 * @return its pending result.
+	 */
+	public <T> Future<T> submit(Callable<T> call) {
+		return executor.submit(call);
+	}
+
+	/**
+	 * {@code close}</br></br>
+	 * Waits for submitted calls to finish and releases the threads.
+	 */
+	@Override
+	public void close() throws CouponSystemException {
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				// keep waiting for running sessions.
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CouponSystemException("interrupted while closing facade executor", e);
+		}
+	}
+
+	private static ExecutorService newVirtualThreadPerTaskExecutor() throws CouponSystemException {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new CouponSystemException("virtual threads require Java 21 or later", e);
+		}
+	}
+
+}
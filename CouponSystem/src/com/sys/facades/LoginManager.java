@@ -1,15 +1,29 @@
 package com.sys.facades;
 
+import java.time.Duration;
+
+import com.sys.dao.CacheMetrics;
+import com.sys.dao.CachedCouponDBDAO;
 import com.sys.dao.CompanyDBDAO;
 import com.sys.dao.CouponDBDAO;
+import com.sys.dao.CredentialIndex;
+import com.sys.dao.CredentialIndex.Credential;
 import com.sys.dao.CustomerDBDAO;
 import com.sys.exception.CouponSystemException;
 
 public class LoginManager {
 
-	private CouponDBDAO couponDao;
+	static final int COUPON_CACHE_SIZE = 10_000;
+	static final Duration COUPON_CACHE_TTL = Duration.ofMinutes(5);
+	static final Duration SESSION_IDLE_TIMEOUT = Duration.ofMinutes(30);
+	static final Duration SESSION_TICK = Duration.ofSeconds(1);
+	static final int MAX_SESSIONS = 10_000;
+
+	private CachedCouponDBDAO couponDao;
 	private CompanyDBDAO companyDao;
 	private CustomerDBDAO customerDao;
+	private CredentialIndex credentials;
+	private SessionManager sessions;
 
 	private static LoginManager instance = new LoginManager();
 
@@ -18,23 +32,99 @@ public class LoginManager {
 	}
 
 	private LoginManager() {
-		couponDao = new CouponDBDAO();
-		companyDao = new CompanyDBDAO(couponDao);
-		customerDao = new CustomerDBDAO(couponDao);
+		couponDao = new CachedCouponDBDAO(COUPON_CACHE_SIZE, COUPON_CACHE_TTL);
+		credentials = new CredentialIndex();
+		companyDao = new CompanyDBDAO(couponDao, credentials);
+		customerDao = new CustomerDBDAO(couponDao, credentials);
+		sessions = new SessionManager(SESSION_IDLE_TIMEOUT, SESSION_TICK, MAX_SESSIONS);
+	}
+
+/**
+ * {@code warmUp}</br></br>
+ * Loads the credentials of every company and customer, so logins don't go to the DB.
+ * @throws CouponSystemException
+ */
+	public void warmUp() throws CouponSystemException {
+		credentials.warmUp();
 	}
 
+/**
+ * {@code login}</br></br>
+ * Resolves the email to a company or customer with one lookup in the {@link CredentialIndex},
+ * which reads the DB only for an email it doesn't know yet.
+ * @return the facade of the admin, company or customer.
+ * @throws CouponSystemException if no company or customer has this email and password.
+ */
 	public ClientFacade login(String email, String password) throws CouponSystemException {
 
 		ClientFacade facade = null;
 		if (email.equalsIgnoreCase("admin@admin.com") && password.equals("admin")) {
 			facade = new AdminFacade(customerDao, companyDao, couponDao);
-		} else if (companyDao.exists(email, password)) {
-			facade = new CompanyFacade(companyDao.getIdByEmail(email), companyDao, couponDao);
-		} else if (customerDao.exists(email, password)) {
-			facade = new CustomerFacade(customerDao.getIdByEmail(email), couponDao, customerDao);
-		} else
-			throw new CouponSystemException("No matching credentials found in the system");
+		} else {
+			Credential credential = credentials.find(email, password);
+			if (credential == null) {
+				throw new CouponSystemException("No matching credentials found in the system");
+			}
+			switch (credential.getRole()) {
+			case COMPANY:
+				facade = new CompanyFacade(credential.getId(), companyDao, couponDao);
+				break;
+			case CUSTOMER:
+				facade = new CustomerFacade(credential.getId(), couponDao, customerDao);
+				break;
+			default:
+				throw new CouponSystemException("No matching credentials found in the system");
+			}
+		}
 		return facade;
 	}
 
+/**
+ * {@code openSession}</br></br>
+ * Logs in, and keeps the facade for later requests of the same client.
+ * @return the session's token, to pass to {@link #resolve(String) resolve} instead of logging in again.
+ * @throws CouponSystemException if the credentials don't match, or the most sessions allowed are open.
+ */
+	public String openSession(String email, String password) throws CouponSystemException {
+		return sessions.open(login(email, password));
+	}
+
+/**
+ * {@code resolve}</br></br>
+ * @param token - the token from {@link #openSession(String, String) openSession}.
+ * @return the facade of the session.
+ * @throws CouponSystemException if the session expired, was closed, or never existed.
+ */
+	public ClientFacade resolve(String token) throws CouponSystemException {
+		return sessions.resolve(token);
+	}
+
+/**
+ * {@code logout}</br></br>
+ * Closes the session, so its token no longer resolves.
+ */
+	public void logout(String token) {
+		sessions.close(token);
+	}
+
+	public SessionManager getSessions() {
+		return sessions;
+	}
+
+/**
+ * {@code getCouponDao}</br></br>
+ * @return the coupon DAO all facades share, with its cache.
+ */
+	public CouponDBDAO getCouponDao() {
+		return couponDao;
+	}
+
+/**
+ * {@code getCouponCacheMetrics}</br></br>
+ * @return hit ratio, evictions and size of the coupon cache shared by all facades.
+ */
+	public CacheMetrics getCouponCacheMetrics() {
+		return couponDao.getCacheMetrics();
+	}
+
 }
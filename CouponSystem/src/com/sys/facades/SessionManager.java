@@ -0,0 +1,224 @@
+package com.sys.facades;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sys.exception.CouponSystemException;
+
+/**
+ * {@code SessionManager}</br></br>
+ * Keeps the facades of logged-in clients behind opaque session tokens, so a client logs in once
+ * and then {@link #resolve(String) resolves} its token to the same facade on every request, with one map lookup.</br></br>
+ * A session expires after the idle timeout passes without a resolve. Expired sessions are found by a hashed timing wheel:
+ * one background thread advances a ring of {@value #WHEEL_SLOTS} slots every {@code tick}, and only looks at the sessions
+ * in the slot it reaches, so resolving never touches a timer, and there is no timer per session.
+ * A session that was used since it was put in its slot is moved to the slot of its new deadline.
+ * {@code resolve} checks the deadline itself, so a session is never used past it, even before the wheel gets to it.</br></br>
+ * At most {@code maxSessions} sessions are open at a time; opening one more fails until one closes or expires.
+ *
+ */
+public class SessionManager implements AutoCloseable {
+
+	static final int WHEEL_SLOTS = 512;
+	private static final int TOKEN_BYTES = 32;
+
+	private static class Session {
+		private final String token;
+		private final ClientFacade facade;
+		private volatile long lastAccess;
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		Session(String token, ClientFacade facade, long now) {
+			this.token = token;
+			this.facade = facade;
+			this.lastAccess = now;
+		}
+	}
+
+	private final long idleTimeoutNanos;
+	private final long tickNanos;
+	private final int maxSessions;
+	private final SecureRandom random = new SecureRandom();
+	private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+	private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+	private final AtomicInteger open = new AtomicInteger();
+	private final LongAdder expired = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	private final Queue<Session>[] wheel;
+	private final long startNanos = System.nanoTime();
+	// the last tick the wheel has processed; written only by the wheel thread.
+	private volatile long currentTick;
+	private final ScheduledExecutorService ticker;
+
+	/**
+	 * @param idleTimeout - how long a session lives after its last resolve.
+	 * @param tick - how often the wheel looks for expired sessions; sessions are dropped at most about one tick late.
+	 * @param maxSessions - the most sessions open at a time.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public SessionManager(Duration idleTimeout, Duration tick, int maxSessions) {
+		if (idleTimeout.isNegative() || idleTimeout.isZero() || tick.isNegative() || tick.isZero() || maxSessions < 1) {
+			throw new IllegalArgumentException(
+					"invalid session bounds: idleTimeout=" + idleTimeout + ", tick=" + tick + ", maxSessions=" + maxSessions);
+		}
+		this.idleTimeoutNanos = idleTimeout.toNanos();
+		this.tickNanos = tick.toNanos();
+		this.maxSessions = maxSessions;
+		wheel = new Queue[WHEEL_SLOTS];
+		for (int i = 0; i < WHEEL_SLOTS; i++) {
+			wheel[i] = new ConcurrentLinkedQueue<>();
+		}
+		ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "session-timing-wheel");
+			thread.setDaemon(true);
+			return thread;
+		});
+		ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+	}
+
+/**
+ * {@code open}</br></br>
+ * Opens a session for a logged-in client.
+ * @param facade - the facade the session's token resolves to.
+ * @return the session's token.
+ * @throws CouponSystemException if {@code maxSessions} sessions are already open.
+ */
+	public String open(ClientFacade facade) throws CouponSystemException {
+		if (open.incrementAndGet() > maxSessions) {
+			open.decrementAndGet();
+			rejected.increment();
+			throw new CouponSystemException("Too many open sessions, try again later");
+		}
+		byte[] bytes = new byte[TOKEN_BYTES];
+		random.nextBytes(bytes);
+		String token = encoder.encodeToString(bytes);
+		long now = System.nanoTime();
+		Session session = new Session(token, facade, now);
+		sessions.put(token, session);
+		schedule(session, now + idleTimeoutNanos);
+		return token;
+	}
+
+/**
+ * {@code resolve}</br></br>
+ * @param token - a token from {@link #open(ClientFacade) open}.
+ * @return the facade of the session, whose idle timeout starts over.
+ * @throws CouponSystemException if there is no such session, or it expired or was closed.
+ */
+	public ClientFacade resolve(String token) throws CouponSystemException {
+		Session session = token == null ? null : sessions.get(token);
+		if (session == null) {
+			throw new CouponSystemException("Session expired or unknown, please log in");
+		}
+		long now = System.nanoTime();
+		if (now - session.lastAccess >= idleTimeoutNanos) {
+			if (close(session)) {
+				expired.increment();
+			}
+			throw new CouponSystemException("Session expired or unknown, please log in");
+		}
+		session.lastAccess = now;
+		return session.facade;
+	}
+
+/**
+ * {@code close}</br></br>
+ * Closes a session, e.g. on log-out. Does nothing if it is already closed.
+ * @param token - the session's token.
+ */
+	public void close(String token) {
+		Session session = token == null ? null : sessions.get(token);
+		if (session != null) {
+			close(session);
+		}
+	}
+
+	public int getOpenSessions() {
+		return open.get();
+	}
+
+	public int getMaxSessions() {
+		return maxSessions;
+	}
+
+	/**
+	 * @return number of sessions dropped because they were idle past the timeout.
+	 */
+	public long getExpiredSessions() {
+		return expired.sum();
+	}
+
+	/**
+	 * @return number of sessions refused because {@code maxSessions} were open.
+	 */
+	public long getRejectedSessions() {
+		return rejected.sum();
+	}
+
+/**
+ * {@code close}</br></br>
+ * Stops the timing wheel. Open sessions stay resolvable until their deadline.
+ */
+	@Override
+	public void close() {
+		ticker.shutdownNow();
+	}
+
+	/**
+	 * @return True if this call closed the session.
+	 */
+	private boolean close(Session session) {
+		if (!session.closed.compareAndSet(false, true)) {
+			return false;
+		}
+		sessions.remove(session.token, session);
+		open.decrementAndGet();
+		return true;
+	}
+
+	private void schedule(Session session, long deadline) {
+		long tick = Math.max(currentTick + 1, (deadline - startNanos + tickNanos - 1) / tickNanos);
+		wheel[(int) (tick % WHEEL_SLOTS)].add(session);
+	}
+
+	private void advance() {
+		long tick = currentTick + 1;
+		long now = System.nanoTime();
+		// a late tick catches up with the clock, one slot at a time.
+		while (tick <= (now - startNanos) / tickNanos) {
+			currentTick = tick;
+			Queue<Session> slot = wheel[(int) (tick % WHEEL_SLOTS)];
+			for (int pending = slot.size(); pending > 0; pending--) {
+				Session session = slot.poll();
+				if (session == null) {
+					break;
+				}
+				if (session.closed.get()) {
+					continue;
+				}
+				long deadline = session.lastAccess + idleTimeoutNanos;
+				if (deadline - now <= 0) {
+					if (close(session)) {
+						expired.increment();
+					}
+				} else {
+					schedule(session, deadline);
+				}
+			}
+			tick++;
+		}
+	}
+
+}
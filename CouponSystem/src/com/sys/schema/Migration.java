@@ -0,0 +1,41 @@
+package com.sys.schema;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@code Migration}</br></br>
+ * One numbered step of the schema: DDL statements that {@link SchemaManager} runs together, once, in one transaction.
+ *
+ */
+public class Migration {
+
+	private final int version;
+	private final String description;
+	private final List<String> statements;
+
+	public Migration(int version, String description, String... statements) {
+		this.version = version;
+		this.description = description;
+		this.statements = Collections.unmodifiableList(Arrays.asList(statements));
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public List<String> getStatements() {
+		return statements;
+	}
+
+	@Override
+	public String toString() {
+		return "Migration [version=" + version + ", description=" + description + "]";
+	}
+
+}
@@ -0,0 +1,187 @@
+package com.sys.schema;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.sys.connection.UnitOfWork;
+import com.sys.exception.ConnectionException;
+import com.sys.exception.CouponSystemException;
+
+/**
+ * {@code SchemaManager}</br></br>
+ * Creates the coupon system's tables, foreign keys and indexes, and keeps them up to date.</br>
+ * Each {@link Migration} is applied once and recorded in the {@code schema_version} table,
+ * so {@link #migrate()} can run on every start-up. A statement that fails because its table, column,
+ * constraint or index is already there is skipped, so a DB that was set up by hand before this class existed
+ * is brought in line instead of failing.
+ *
+ */
+public class SchemaManager {
+
+	/**
+	 * Derby: table, column, constraint or index already exists.
+	 */
+	private static final String ALREADY_EXISTS_STATE = "X0Y32";
+	/**
+	 * Derby: the table already has a primary key.
+	 */
+	private static final String PRIMARY_KEY_EXISTS_STATE = "X0Y58";
+
+	private static final String sqlCreateVersionTable = "create table schema_version (version int not null primary key, "
+			+ "description varchar(200) not null, applied_at timestamp not null, elapsed_ms bigint not null)";
+	private static final String sqlReadVersions = "select version from schema_version";
+	private static final String sqlAddVersion = "insert into schema_version (version,description,applied_at,elapsed_ms) "
+			+ "values (?,?,?,?)";
+
+	private static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+			new Migration(1, "tables",
+					"create table companies (id int not null generated always as identity primary key, "
+							+ "name varchar(100) not null, email varchar(100) not null, password varchar(100) not null)",
+					"create table customers (id int not null generated always as identity primary key, "
+							+ "first_name varchar(100), last_name varchar(100), "
+							+ "email varchar(100) not null, password varchar(100) not null)",
+					"create table coupons (id int not null generated always as identity primary key, "
+							+ "company_id int not null, category_id int, title varchar(100) not null, "
+							+ "start_date date, end_date date, amount int not null, type varchar(20), "
+							+ "description varchar(500), price double, image varchar(500))",
+					"create table customers_vs_coupons (customer_id int not null, coupon_id int not null)"),
+			new Migration(2, "keys",
+					"alter table customers_vs_coupons add constraint customers_vs_coupons_pk "
+							+ "primary key (customer_id, coupon_id)",
+					"alter table coupons add constraint coupons_company_fk "
+							+ "foreign key (company_id) references companies (id)",
+					"alter table customers_vs_coupons add constraint customers_vs_coupons_customer_fk "
+							+ "foreign key (customer_id) references customers (id) on delete cascade",
+					"alter table customers_vs_coupons add constraint customers_vs_coupons_coupon_fk "
+							+ "foreign key (coupon_id) references coupons (id) on delete cascade"),
+			new Migration(3, "indexes for the DAO queries",
+					// exists(email, password) and getIdByEmail.
+					"create unique index companies_email on companies (email)",
+					"create unique index customers_email on customers (email)",
+					// readAll(company) and its pages, in id order.
+					"create index coupons_company on coupons (company_id, id)",
+					// deleteAllFromHistory and the joins from a coupon to its buyers.
+					"create index customers_vs_coupons_coupon on customers_vs_coupons (coupon_id)",
+					// deleteExpired reads the ids of expired coupons in id order.
+					"create index coupons_end_date on coupons (end_date, id)"),
+			new Migration(4, "case-insensitive unique company names and coupon titles",
+					"alter table companies add column name_key generated always as (upper(name))",
+					"create unique index companies_name_key on companies (name_key)",
+					"alter table coupons add column title_key generated always as (upper(title))",
+					"create unique index coupons_company_title_key on coupons (company_id, title_key)"),
+			new Migration(5, "row versions for optimistic updates",
+					"alter table companies add column version int not null default 0",
+					"alter table customers add column version int not null default 0",
+					"alter table coupons add column version int not null default 0")));
+
+	private SchemaManager() {
+	}
+
+	/**
+	 * @return every migration, in the order they are applied.
+	 */
+	public static List<Migration> getMigrations() {
+		return MIGRATIONS;
+	}
+
+	/**
+	 * {@code migrate}</br></br>
+	 * Applies the migrations not yet recorded in {@code schema_version}, in order, each in its own transaction.
+	 * @return the migrations applied by this call; empty if the schema was up to date.
+	 * @throws CouponSystemException if a migration fails; it is rolled back, and later ones are not tried.
+	 */
+	public static List<Migration> migrate() throws CouponSystemException {
+		createVersionTable();
+		Set<Integer> applied = readAppliedVersions();
+		List<Migration> result = new ArrayList<>();
+		for (Migration migration : MIGRATIONS) {
+			if (!applied.contains(migration.getVersion())) {
+				apply(migration);
+				result.add(migration);
+			}
+		}
+		return result;
+	}
+
+	private static void createVersionTable() throws CouponSystemException {
+		try (UnitOfWork work = UnitOfWork.begin()) {
+			Connection connection = UnitOfWork.getConnection();
+			try (Statement statement = connection.createStatement()) {
+				executeIfMissing(statement, sqlCreateVersionTable);
+			} catch (SQLException e) {
+				throw new CouponSystemException("error in creating schema_version", e);
+			} finally {
+				UnitOfWork.restoreConnection(connection);
+			}
+			work.commit();
+		} catch (ConnectionException e) {
+			throw new CouponSystemException("error in creating schema_version", e);
+		}
+	}
+
+	private static Set<Integer> readAppliedVersions() throws CouponSystemException {
+		Set<Integer> result = new HashSet<>();
+		try {
+			Connection connection = UnitOfWork.getConnection();
+			try (PreparedStatement read = connection.prepareStatement(sqlReadVersions)) {
+				ResultSet rs = read.executeQuery();
+				while (rs.next()) {
+					result.add(rs.getInt(1));
+				}
+			} catch (SQLException e) {
+				throw new CouponSystemException("error in reading schema_version", e);
+			} finally {
+				UnitOfWork.restoreConnection(connection);
+			}
+		} catch (ConnectionException e) {
+			throw new CouponSystemException("error in reading schema_version", e);
+		}
+		return result;
+	}
+
+	private static void apply(Migration migration) throws CouponSystemException {
+		long start = System.nanoTime();
+		try (UnitOfWork work = UnitOfWork.begin()) {
+			Connection connection = UnitOfWork.getConnection();
+			try (Statement statement = connection.createStatement();
+					PreparedStatement record = connection.prepareStatement(sqlAddVersion)) {
+				for (String ddl : migration.getStatements()) {
+					executeIfMissing(statement, ddl);
+				}
+				record.setInt(1, migration.getVersion());
+				record.setString(2, migration.getDescription());
+				record.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+				record.setLong(4, (System.nanoTime() - start) / 1_000_000);
+				record.execute();
+			} catch (SQLException e) {
+				throw new CouponSystemException("error in applying " + migration, e);
+			} finally {
+				UnitOfWork.restoreConnection(connection);
+			}
+			work.commit();
+		} catch (ConnectionException e) {
+			throw new CouponSystemException("error in applying " + migration, e);
+		}
+	}
+
+	private static void executeIfMissing(Statement statement, String ddl) throws SQLException {
+		try {
+			statement.execute(ddl);
+		} catch (SQLException e) {
+			if (!ALREADY_EXISTS_STATE.equals(e.getSQLState()) && !PRIMARY_KEY_EXISTS_STATE.equals(e.getSQLState())) {
+				throw new SQLException(e.getMessage() + " [" + ddl + "]", e.getSQLState(), e.getErrorCode(), e);
+			}
+		}
+	}
+
+}
@@ -13,12 +13,14 @@ import com.sys.beans.Company;
 import com.sys.beans.Coupon;
 import com.sys.beans.Customer;
 import com.sys.connection.CouponExpirationDailyJob;
+import com.sys.dao.UpdateResult;
 import com.sys.exception.CouponSystemException;
 import com.sys.facades.AdminFacade;
 import com.sys.facades.ClientFacade;
 import com.sys.facades.CompanyFacade;
 import com.sys.facades.CustomerFacade;
 import com.sys.facades.LoginManager;
+import com.sys.schema.SchemaManager;
 
 public class TesterUI {
 	private final Scanner in = new Scanner(System.in);
@@ -94,7 +96,7 @@ public class TesterUI {
 					readList(companies);
 					Company companyToUpdate = facade.getCompanyById(readInteger("company"));
 					updateCompany(companyToUpdate);
-					facade.updateCompany(companyToUpdate);
+					printUpdateResult(facade.updateCompany(companyToUpdate), "company");
 					break;
 				}
 
@@ -115,7 +117,7 @@ public class TesterUI {
 					readList(customers);
 					Customer customerToUpdate = facade.returnCustomerById(readInteger("customer"));
 					updateCustomer(customerToUpdate);
-					facade.updateCustomer(customerToUpdate);
+					printUpdateResult(facade.updateCustomer(customerToUpdate), "customer");
 					break;
 				}
 //				default: {
@@ -173,7 +175,7 @@ public class TesterUI {
 
 					Coupon couponToUpdate = facade.read(readInteger("coupon id"));
 					updateCoupon(couponToUpdate);
-					facade.updateCoupon(couponToUpdate);
+					printUpdateResult(facade.updateCoupon(couponToUpdate), "coupon");
 					break;
 				}
 				case "read all coupons": {
@@ -303,6 +305,20 @@ public class TesterUI {
 
 	}
 
+	private void printUpdateResult(UpdateResult result, String record) {
+		switch (result) {
+		case UPDATED:
+			System.out.println(record + " updated");
+			break;
+		case CONFLICT:
+			System.out.println(record + " was changed by someone else, reload and retry");
+			break;
+		case NOT_FOUND:
+			System.out.println(record + " not found, it may have been removed");
+			break;
+		}
+	}
+
 	private <T> void readList(Collection<T> collection) {
 		for (T t : collection) {
 			System.out.println(t);
@@ -346,11 +362,16 @@ public class TesterUI {
 
 	private void exit() {
 		quit = false;
-		dailyJob.stop();
+		if (dailyJob != null) {
+			dailyJob.stop();
+		}
 	}
 
-	private void startProgram() {
+	private void startProgram() throws CouponSystemException {
+		SchemaManager.migrate();
+		LoginManager.getInstance().warmUp();
 		hasStarted = true;
+		dailyJob = new CouponExpirationDailyJob(LoginManager.getInstance().getCouponDao());
 		Thread job = new Thread(dailyJob);
 		job.start();
 	}